@@ -21,6 +21,7 @@ plugins {
     id("org.jlleitschuh.gradle.ktlint") version "10.2.1"
     id("io.gitlab.arturbosch.detekt").version("1.19.0")
     id("com.google.protobuf") version "0.8.18"
+    id("me.champeau.jmh") version "0.6.6"
     idea
     jacoco
 }
@@ -46,6 +47,7 @@ dependencies {
     implementation("org.flywaydb:flyway-core")
     runtimeOnly("org.postgresql:postgresql")
     implementation("io.micrometer:micrometer-registry-prometheus")
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     implementation("io.github.microutils:kotlin-logging:2.1.21")
     implementation("com.github.AMPnet:jwt:1.0.1")
@@ -121,6 +123,15 @@ tasks.jacocoTestCoverageVerification {
     mustRunAfter(tasks.jacocoTestReport)
 }
 
+jmh {
+    jmhVersion.set("1.34")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
+// benchmarks call internal functions of the main source set
+kotlin.target.compilations.getByName("jmh").associateWith(kotlin.target.compilations.getByName("main"))
+
 detekt {
     input = files("src/main/kotlin")
     config = files("detekt-config.yml")
@@ -0,0 +1,62 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.FixedScheduler
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import java.lang.reflect.Proxy
+import java.util.Properties
+import java.util.concurrent.AbstractExecutorService
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.TimeUnit
+
+object BenchmarkFixtures {
+
+    const val ADDRESS = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    const val MESSAGE = "Welcome!\nPlease sign this message to verify that you are the owner of address: " +
+        "0x9a72ad187229e9338c7f21e019544947fb25d473\nNonce: 1202780025"
+    const val SIGNATURE = "0xbc450b7d46c065c824af75c93b7baac89c8282ee1496474fd8707692ba1df8250de4dc5dc4cb770c39a0" +
+        "4a6e9f9ebe55b7111f359ad24f79e1aa7a3f50620b841b"
+
+    /**
+     * Application properties with JWT keys loaded from the default application.properties.
+     */
+    fun applicationProperties(): ApplicationProperties {
+        val properties = Properties()
+        ApplicationProperties::class.java.getResourceAsStream("/application.properties").use { properties.load(it) }
+        return ApplicationProperties().apply {
+            jwt.publicKey = properties.getProperty("com.ampnet.identityservice.jwt.public-key")
+            jwt.privateKey = properties.getProperty("com.ampnet.identityservice.jwt.private-key")
+        }
+    }
+
+    /**
+     * Scheduler provider whose jobs never run, background work is not part of the benchmarks.
+     */
+    fun idleScheduler(): ScheduledExecutorServiceProvider = object : ScheduledExecutorServiceProvider {
+        override fun newSingleThreadScheduledExecutor(threadPrefix: String): FixedScheduler = object : FixedScheduler {
+            override fun scheduleAtFixedRate(command: Runnable, initialDelay: Long, period: Long, unit: TimeUnit) =
+                Unit
+
+            override fun shutdown() = Unit
+        }
+    }
+
+    /**
+     * Executor which runs tasks on the calling thread, the hand-off to the auth executor is not measured.
+     */
+    fun directExecutor(): ExecutorService = object : AbstractExecutorService() {
+        override fun execute(command: Runnable) = command.run()
+        override fun shutdown() = Unit
+        override fun shutdownNow(): List<Runnable> = emptyList()
+        override fun isShutdown(): Boolean = false
+        override fun isTerminated(): Boolean = false
+        override fun awaitTermination(timeout: Long, unit: TimeUnit): Boolean = false
+    }
+
+    /**
+     * Dependency which is not used on the benchmarked path, every call fails.
+     */
+    inline fun <reified T> unused(): T = Proxy.newProxyInstance(
+        T::class.java.classLoader, arrayOf(T::class.java)
+    ) { _, method, _ -> throw UnsupportedOperationException("${method.name} is not available in benchmarks") } as T
+}
@@ -0,0 +1,134 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.service.impl.RefreshTokenStore
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.Timestamp
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Compares database work of a login: the previous flow (delete and insert of the refresh token in one
+ * transaction, then select and insert of the user in another) with the single statement upsert used by
+ * `RefreshTokenRepository.replaceForUser`.
+ *
+ * Needs a migrated database, by default the one used by tests. Override with `-Djmh.datasource.url`,
+ * `-Djmh.datasource.username` and `-Djmh.datasource.password`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class LoginPipelineBenchmark {
+
+    private companion object {
+        const val ADDRESS_PREFIX = "0xbenchmark"
+        const val USERS = 1_000
+        val tokenCounter = AtomicLong()
+    }
+
+    private lateinit var connection: Connection
+    private var user = 0
+
+    @Setup(Level.Trial)
+    fun setup() {
+        connection = DriverManager.getConnection(
+            System.getProperty("jmh.datasource.url", "jdbc:postgresql://localhost:5432/identity_service_test"),
+            System.getProperty("jmh.datasource.username", "identity_service_test"),
+            System.getProperty("jmh.datasource.password", "password")
+        )
+        connection.autoCommit = false
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        connection.prepareStatement("DELETE FROM refresh_token WHERE user_address LIKE ?").use {
+            it.setString(1, "$ADDRESS_PREFIX%")
+            it.executeUpdate()
+        }
+        connection.prepareStatement("DELETE FROM app_user WHERE address LIKE ?").use {
+            it.setString(1, "$ADDRESS_PREFIX%")
+            it.executeUpdate()
+        }
+        connection.commit()
+        connection.close()
+    }
+
+    @Benchmark
+    fun previousFlow() {
+        val address = nextAddress()
+        val now = Timestamp(System.currentTimeMillis())
+        connection.prepareStatement("DELETE FROM refresh_token WHERE user_address = ?").use {
+            it.setString(1, address)
+            it.executeUpdate()
+        }
+        connection.prepareStatement("INSERT INTO refresh_token(user_address, token_hash, created_at) VALUES (?, ?, ?)")
+            .use {
+                it.setString(1, address)
+                it.setBytes(2, nextTokenHash())
+                it.setTimestamp(3, now)
+                it.executeUpdate()
+            }
+        connection.commit()
+        val exists = connection.prepareStatement("SELECT 1 FROM app_user WHERE address = ?").use {
+            it.setString(1, address)
+            it.executeQuery().use { resultSet -> resultSet.next() }
+        }
+        if (!exists) {
+            connection.prepareStatement("INSERT INTO app_user(address, created_at) VALUES (?, ?)").use {
+                it.setString(1, address)
+                it.setTimestamp(2, now)
+                it.executeUpdate()
+            }
+        }
+        connection.commit()
+    }
+
+    @Benchmark
+    fun singleStatement(): Boolean {
+        val address = nextAddress()
+        val now = Timestamp(System.currentTimeMillis())
+        val created = connection.prepareStatement(
+            """WITH created_user AS (
+                   INSERT INTO app_user(address, created_at) VALUES (?, ?)
+                   ON CONFLICT (address) DO NOTHING
+                   RETURNING address
+               ), deleted_token AS (
+                   DELETE FROM refresh_token WHERE user_address = ?
+               )
+               INSERT INTO refresh_token(user_address, token_hash, created_at) VALUES (?, ?, ?)
+               RETURNING EXISTS(SELECT 1 FROM created_user)"""
+        ).use {
+            it.setString(1, address)
+            it.setTimestamp(2, now)
+            it.setString(3, address)
+            it.setString(4, address)
+            it.setBytes(5, nextTokenHash())
+            it.setTimestamp(6, now)
+            it.executeQuery().use { resultSet -> resultSet.next() && resultSet.getBoolean(1) }
+        }
+        connection.commit()
+        return created
+    }
+
+    private fun nextAddress(): String {
+        user = (user + 1) % USERS
+        return ADDRESS_PREFIX + user
+    }
+
+    private fun nextTokenHash(): ByteArray = RefreshTokenStore.hash(tokenCounter.incrementAndGet().toString())
+}
@@ -0,0 +1,61 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.util.PersonalSignature
+import com.ampnet.identityservice.util.WalletAddress
+import org.kethereum.crypto.signedMessageToKey
+import org.kethereum.crypto.toAddress
+import org.kethereum.model.SignatureData
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares verification of a login signature through the previous kethereum based path (byte array
+ * concatenation, substring and BigInteger parsing, string address comparison) with [PersonalSignature].
+ *
+ * Run with `./gradlew jmh`, the gc profiler reports allocated bytes per login as `gc.alloc.rate.norm`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class PersonalSignatureBenchmark {
+
+    private val address = WalletAddress(BenchmarkFixtures.ADDRESS)
+    private val message = BenchmarkFixtures.MESSAGE
+    private val signature = BenchmarkFixtures.SIGNATURE
+
+    @Benchmark
+    fun previousVerification(blackhole: Blackhole) {
+        val payload = message.toByteArray()
+        val eip191 = byteArrayOf(0x19) + ("Ethereum Signed Message:\n" + payload.size).toByteArray() + payload
+        val signatureData = SignatureData(
+            BigInteger(signature.substring(2, 66), 16),
+            BigInteger(signature.substring(66, 130), 16),
+            BigInteger(signature.substring(130, 132), 16)
+        )
+        val publicKey = signedMessageToKey(eip191, signatureData)
+        blackhole.consume(address == WalletAddress(publicKey.toAddress().toString()))
+    }
+
+    @Benchmark
+    fun verification() {
+        PersonalSignature.verify(address, message, signature)
+    }
+
+    @Benchmark
+    fun hash(blackhole: Blackhole) {
+        blackhole.consume(PersonalSignature.hash(message.toByteArray()))
+    }
+}
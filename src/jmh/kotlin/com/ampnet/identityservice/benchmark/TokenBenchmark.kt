@@ -0,0 +1,108 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.core.jwt.JwtTokenUtils
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.security.JwtAlgorithm
+import com.ampnet.identityservice.security.JwtKeyStore
+import com.ampnet.identityservice.security.JwtTokenSigner
+import com.ampnet.identityservice.security.JwtTokenVerifier
+import com.ampnet.identityservice.service.BufferedRandomProvider
+import com.ampnet.identityservice.service.CurrentZonedDateTimeProvider
+import com.ampnet.identityservice.service.impl.AccessTokenDenylist
+import com.ampnet.identityservice.service.impl.RefreshTokenStore
+import com.ampnet.identityservice.service.impl.TokenServiceImpl
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.security.KeyPairGenerator
+import java.security.spec.ECGenParameterSpec
+import java.util.Base64
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class TokenBenchmark {
+
+    private companion object {
+        const val VALIDITY = 3_600_000L
+    }
+
+    private lateinit var applicationProperties: ApplicationProperties
+    private lateinit var tokenService: TokenServiceImpl
+    private lateinit var rsaSigner: JwtTokenSigner
+    private lateinit var ecSigner: JwtTokenSigner
+    private lateinit var verifier: JwtTokenVerifier
+    private lateinit var rsaToken: String
+    private lateinit var ecToken: String
+
+    @Setup
+    fun setup() {
+        applicationProperties = BenchmarkFixtures.applicationProperties()
+        val ecKeyPair = KeyPairGenerator.getInstance("EC")
+            .apply { initialize(ECGenParameterSpec("secp256r1")) }
+            .generateKeyPair()
+        applicationProperties.jwt.ecPrivateKey = Base64.getEncoder().encodeToString(ecKeyPair.private.encoded)
+        applicationProperties.jwt.ecPublicKey = Base64.getEncoder().encodeToString(ecKeyPair.public.encoded)
+        val randomProvider = BufferedRandomProvider()
+        val timeProvider = CurrentZonedDateTimeProvider()
+        rsaSigner = JwtTokenSigner(JwtKeyStore(applicationProperties), randomProvider, timeProvider)
+        verifier = JwtTokenVerifier(JwtKeyStore(applicationProperties), timeProvider)
+        tokenService = TokenServiceImpl(
+            timeProvider,
+            applicationProperties,
+            RefreshTokenStore(BenchmarkFixtures.unused(), applicationProperties, SimpleMeterRegistry()),
+            randomProvider,
+            rsaSigner,
+            BenchmarkFixtures.unused(),
+            AccessTokenDenylist(
+                BenchmarkFixtures.unused(),
+                timeProvider,
+                applicationProperties,
+                SimpleMeterRegistry(),
+                BenchmarkFixtures.idleScheduler()
+            ),
+            BenchmarkFixtures.directExecutor()
+        )
+        applicationProperties.jwt.algorithm = JwtAlgorithm.ES256
+        ecSigner = JwtTokenSigner(JwtKeyStore(applicationProperties), randomProvider, timeProvider)
+        rsaToken = rsaSigner.encode(BenchmarkFixtures.ADDRESS, VALIDITY)
+        ecToken = ecSigner.encode(BenchmarkFixtures.ADDRESS, VALIDITY)
+    }
+
+    @Benchmark
+    fun signRs256(): String = rsaSigner.encode(BenchmarkFixtures.ADDRESS, VALIDITY)
+
+    @Benchmark
+    fun signEs256(): String = ecSigner.encode(BenchmarkFixtures.ADDRESS, VALIDITY)
+
+    @Benchmark
+    fun verifyRs256() = verifier.verify(rsaToken)
+
+    @Benchmark
+    fun verifyEs256() = verifier.verify(ecToken)
+
+    /**
+     * Previous signing path, parses the PEM private key on every call.
+     */
+    @Benchmark
+    fun previousEncodeAccessToken(): String = JwtTokenUtils.encodeToken(
+        BenchmarkFixtures.ADDRESS,
+        applicationProperties.jwt.privateKey,
+        VALIDITY
+    )
+
+    @Benchmark
+    fun getRandomToken(): String = tokenService.getRandomToken()
+}
@@ -0,0 +1,153 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserResponse
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import java.sql.Connection
+import java.sql.ResultSet
+import java.sql.Timestamp
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares the previous read path of gRPC `GetUsers` (all columns of `app_user`, then all columns of
+ * `user_info`, joined in memory) with the single join projection of [UserResponseRepository]. The previous
+ * path is measured over plain JDBC, without entity hydration in Hibernate, so it is a lower bound.
+ *
+ * Needs a migrated database, see [LoginPipelineBenchmark].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class UserLookupBenchmark {
+
+    private companion object {
+        const val ADDRESS_PREFIX = "0xbenchmarklookup"
+        const val SESSION_ID = "benchmark-lookup"
+    }
+
+    @Param("1000", "10000")
+    var users: Int = 0
+
+    private lateinit var dataSource: DriverManagerDataSource
+    private lateinit var repository: UserResponseRepository
+    private lateinit var addresses: List<String>
+
+    @Setup(Level.Trial)
+    fun setup() {
+        dataSource = DriverManagerDataSource(
+            System.getProperty("jmh.datasource.url", "jdbc:postgresql://localhost:5432/identity_service_test"),
+            System.getProperty("jmh.datasource.username", "identity_service_test"),
+            System.getProperty("jmh.datasource.password", "password")
+        )
+        repository = UserResponseRepository(dataSource, DataSourceTransactionManager(dataSource))
+        addresses = (0 until users).map { ADDRESS_PREFIX + it }
+        dataSource.connection.use { insertUsers(it) }
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        dataSource.connection.use { connection ->
+            connection.prepareStatement("DELETE FROM app_user WHERE address LIKE ?").use {
+                it.setString(1, "$ADDRESS_PREFIX%")
+                it.executeUpdate()
+            }
+            connection.prepareStatement("DELETE FROM user_info WHERE session_id = ?").use {
+                it.setString(1, SESSION_ID)
+                it.executeUpdate()
+            }
+        }
+    }
+
+    @Benchmark
+    fun previousTwoQueries(): List<UserResponse> = dataSource.connection.use { connection ->
+        val userRows = connection.prepareStatement(
+            "SELECT * FROM app_user WHERE address IN (${addresses.joinToString { "?" }})"
+        ).use { statement ->
+            addresses.forEachIndexed { index, address -> statement.setString(index + 1, address) }
+            statement.executeQuery().use { it.toRows() }
+        }
+        val uuids = userRows.mapNotNull { it["user_info_uuid"] }
+        val userInfoRows = connection.prepareStatement(
+            "SELECT * FROM user_info WHERE uuid IN (${uuids.joinToString { "?" }})"
+        ).use { statement ->
+            uuids.forEachIndexed { index, uuid -> statement.setObject(index + 1, uuid) }
+            statement.executeQuery().use { it.toRows() }
+        }.associateBy { it["uuid"] }
+        userRows.map { user -> toUserResponse(user, userInfoRows[user["user_info_uuid"]]) }
+    }
+
+    @Benchmark
+    fun singleProjection(): List<UserResponse> = repository.findAllByAddresses(addresses)
+
+    private fun insertUsers(connection: Connection) {
+        val now = Timestamp(System.currentTimeMillis())
+        val userInfo = connection.prepareStatement(
+            """INSERT INTO user_info(uuid, session_id, first_name, last_name, id_number, date_of_birth,
+                   document_number, document_valid_from, document_valid_until, created_at, connected, deactivated)
+               VALUES (?, ?, 'first', 'last', 'id-num', '1990-01-01', 'doc-num', '2020-01-01', '2030-01-01', ?,
+                   true, false)"""
+        )
+        val user = connection.prepareStatement(
+            "INSERT INTO app_user(address, email, user_info_uuid, created_at) VALUES (?, 'email@mail.com', ?, ?)"
+        )
+        addresses.forEachIndexed { index, address ->
+            val uuid = if (index % 2 == 0) UUID.randomUUID() else null
+            if (uuid != null) {
+                userInfo.setObject(1, uuid)
+                userInfo.setString(2, SESSION_ID)
+                userInfo.setTimestamp(3, now)
+                userInfo.addBatch()
+            }
+            user.setString(1, address)
+            user.setObject(2, uuid)
+            user.setTimestamp(3, now)
+            user.addBatch()
+        }
+        userInfo.use { it.executeBatch() }
+        user.use { it.executeBatch() }
+    }
+
+    private fun ResultSet.toRows(): List<Map<String, Any?>> {
+        val columns = (1..metaData.columnCount).map { metaData.getColumnLabel(it) }
+        val rows = mutableListOf<Map<String, Any?>>()
+        while (next()) {
+            rows.add(columns.associateWith { getObject(it) })
+        }
+        return rows
+    }
+
+    private fun toUserResponse(user: Map<String, Any?>, userInfo: Map<String, Any?>?): UserResponse =
+        UserResponse.newBuilder().apply {
+            address = user["address"] as String
+            email = user["email"] as String? ?: ""
+            createdAt = TimeUnit.MILLISECONDS.toSeconds((user["created_at"] as Timestamp).time)
+            language = user["language"] as String? ?: ""
+            userInfo?.let {
+                firstName = it["first_name"] as String
+                lastName = it["last_name"] as String
+                dateOfBirth = it["date_of_birth"] as String? ?: ""
+                personalNumber = it["id_number"] as String? ?: ""
+                documentNumber = it["document_number"] as String? ?: ""
+                documentValidFrom = it["document_valid_from"] as String? ?: ""
+                documentValidUntil = it["document_valid_until"] as String? ?: ""
+            }
+        }.build()
+}
@@ -0,0 +1,33 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.util.ContractVersion
+import com.ampnet.identityservice.util.WalletAddress
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ValueClassBenchmark {
+
+    private val checksumAddress = "0x9A72ad187229E9338c7F21e019544947fb25D473"
+    private val olderVersion = ContractVersion("1.0.19")
+    private val newerVersion = ContractVersion("1.0.20")
+
+    @Benchmark
+    fun createWalletAddress(): String = WalletAddress(checksumAddress).value
+
+    @Benchmark
+    fun compareContractVersion(): Int = olderVersion.compareTo(newerVersion)
+}
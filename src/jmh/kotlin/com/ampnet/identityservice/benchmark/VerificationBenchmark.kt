@@ -0,0 +1,57 @@
+package com.ampnet.identityservice.benchmark
+
+import com.ampnet.identityservice.service.BufferedRandomProvider
+import com.ampnet.identityservice.service.CurrentZonedDateTimeProvider
+import com.ampnet.identityservice.service.impl.ContractWalletService
+import com.ampnet.identityservice.service.impl.InMemoryChallengeStore
+import com.ampnet.identityservice.service.impl.SignedChallengeService
+import com.ampnet.identityservice.service.impl.VerificationServiceImpl
+import com.ampnet.identityservice.util.WalletAddress
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class VerificationBenchmark {
+
+    private val address = WalletAddress(BenchmarkFixtures.ADDRESS)
+    private lateinit var verificationService: VerificationServiceImpl
+
+    @Setup
+    fun setup() {
+        val applicationProperties = BenchmarkFixtures.applicationProperties()
+        val meterRegistry = SimpleMeterRegistry()
+        verificationService = VerificationServiceImpl(
+            ContractWalletService(BenchmarkFixtures.unused(), applicationProperties, meterRegistry),
+            InMemoryChallengeStore(applicationProperties, meterRegistry),
+            SignedChallengeService(applicationProperties, CurrentZonedDateTimeProvider(), meterRegistry),
+            BufferedRandomProvider(),
+            applicationProperties,
+            BenchmarkFixtures.directExecutor()
+        )
+    }
+
+    @Benchmark
+    fun verifyPersonalSignedPayload() {
+        verificationService.verifyPersonalSignedPayload(address, BenchmarkFixtures.MESSAGE, BenchmarkFixtures.SIGNATURE)
+    }
+
+    @Benchmark
+    fun verifyMessageSignedPayload() {
+        verificationService.verifyMessageSignedPayload(address, BenchmarkFixtures.MESSAGE, BenchmarkFixtures.SIGNATURE)
+    }
+}
@@ -22,4 +22,5 @@ interface BlockchainService {
     fun autoInvestFor(records: List<InvestmentRecordStatus>, chainId: ChainId): TransactionHash?
     fun getContractVersion(chainId: ChainId, address: ContractAddress): ContractVersion?
     fun isSignatureValid(chainId: ChainId, address: ContractAddress, data: ByteArray, signature: ByteArray): Boolean
+    fun getCode(chainId: ChainId, address: ContractAddress): String?
 }
@@ -16,6 +16,7 @@ import org.springframework.stereotype.Service
 import org.springframework.web.client.RestClientException
 import org.springframework.web.client.RestTemplate
 import org.springframework.web.client.getForObject
+import org.web3j.protocol.core.DefaultBlockParameterName
 import org.web3j.protocol.core.RemoteFunctionCall
 import org.web3j.protocol.core.Request
 import org.web3j.protocol.core.Response
@@ -30,6 +31,7 @@ import java.math.BigInteger
 private val logger = KotlinLogging.logger {}
 
 @Service
+@Suppress("TooManyFunctions")
 class BlockchainServiceImpl(
     private val applicationProperties: ApplicationProperties,
     private val restTemplate: RestTemplate
@@ -213,6 +215,12 @@ class BlockchainServiceImpl(
             ?: false
     }
 
+    @Throws(InternalException::class)
+    override fun getCode(chainId: ChainId, address: ContractAddress): String? {
+        val web3j = chainHandler.getBlockchainProperties(chainId).web3j
+        return web3j.ethGetCode(address.value, DefaultBlockParameterName.LATEST).sendSafely()?.code
+    }
+
     @Suppress("NestedBlockDepth")
     internal fun getGasPrice(chainId: ChainId, fastest: Boolean = false): BigInteger? {
         chainHandler.getGasPriceFeed(chainId)?.let { url ->
@@ -1,9 +1,11 @@
 package com.ampnet.identityservice.config
 
+import com.ampnet.identityservice.security.JwtAlgorithm
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.context.annotation.Configuration
 import java.math.BigInteger
 import java.time.Duration
+import java.time.Instant
 
 @Configuration
 @ConfigurationProperties(prefix = "com.ampnet.identityservice")
@@ -23,6 +25,13 @@ class ApplicationProperties {
     val walletApprove = WalletApproveProperties()
     val autoInvest = AutoInvestProperties()
     val reCaptcha: ReCaptchaProperties = ReCaptchaProperties()
+    val challenge = ChallengeProperties()
+    val auth = AuthProperties()
+    val contractWallet = ContractWalletProperties()
+    val refreshTokenPurge = RefreshTokenPurgeProperties()
+    val accessTokenRevocation = AccessTokenRevocationProperties()
+    val grpc = GrpcProperties()
+    val userChange = UserChangeProperties()
     lateinit var infuraId: String
 }
 
@@ -32,11 +41,31 @@ class JwtProperties {
     lateinit var privateKey: String
     var accessTokenValidityInMinutes: Long = 60 * 24
     var refreshTokenValidityInMinutes: Long = 60 * 24 * 90
+    var algorithm: JwtAlgorithm = JwtAlgorithm.RS256
+    var ecPrivateKey: String = ""
+    var ecPublicKey: String = ""
+    var keyId: String = ""
+    var kycClaims: Boolean = false
+    var keys: MutableList<JwtKeyProperties> = mutableListOf()
+    var jwksMaxAge: Duration = Duration.ofHours(1)
+    var verifiedTokenCacheMaxEntries: Long = 10_000
+    var verifiedTokenCacheTtl: Duration = Duration.ofMinutes(5)
+    var refreshTokenCacheMaxEntries: Long = 100_000
+    var refreshTokenCacheTtl: Duration = Duration.ofSeconds(10)
 
     fun accessTokenValidityInMilliseconds(): Long = accessTokenValidityInMinutes * 60 * 1000
     fun refreshTokenValidityInMilliseconds(): Long = refreshTokenValidityInMinutes * 60 * 1000
 }
 
+class JwtKeyProperties {
+    lateinit var keyId: String
+    var algorithm: JwtAlgorithm = JwtAlgorithm.RS256
+    lateinit var publicKey: String
+    var privateKey: String = ""
+    var activeFrom: Instant = Instant.EPOCH
+    var retireAt: Instant? = null
+}
+
 class VeriffProperties {
     lateinit var apiKey: String
     lateinit var privateKey: String
@@ -97,3 +126,71 @@ class ReCaptchaProperties {
     var score: Float = 0.5F
     var url = "https://www.google.com/recaptcha/api/siteverify"
 }
+
+@Suppress("MagicNumber")
+class ChallengeProperties {
+    var store: String = "memory"
+    var ttl: Duration = Duration.ofMinutes(10L)
+    var maxEntries: Long = 100_000L
+    var cleanupPeriod: Duration = Duration.ofMinutes(1L)
+    var signed: Boolean = false
+    var secret: String = ""
+}
+
+@Suppress("MagicNumber")
+class RefreshTokenPurgeProperties {
+    var enabled: Boolean = true
+    var period: Duration = Duration.ofMinutes(10L)
+    var batchSize: Int = 1_000
+    var maxBatchesPerRun: Int = 100
+}
+
+@Suppress("MagicNumber")
+class AccessTokenRevocationProperties {
+    var syncPeriod: Duration = Duration.ofSeconds(10L)
+    var syncOverlap: Duration = Duration.ofMinutes(1L)
+    var bucketDuration: Duration = Duration.ofMinutes(5L)
+    var expectedEntries: Int = 100_000
+}
+
+@Suppress("MagicNumber")
+class GrpcProperties {
+    var streamChunkSize: Int = 500
+    var userCacheMaxEntries: Long = 100_000
+    var userCacheTtl: Duration = Duration.ofMinutes(10L)
+    var lookupChunkSize: Int = 1_000
+    var lookupParallelism: Int = 4
+    var lookupQueueCapacity: Int = 100
+    var compression: String = "gzip"
+    var watchPollPeriod: Duration = Duration.ofSeconds(1L)
+    var watchBatchSize: Int = 500
+    var watchGapTimeout: Duration = Duration.ofSeconds(30L)
+}
+
+@Suppress("MagicNumber")
+class UserChangeProperties {
+    var retention: Duration = Duration.ofDays(7L)
+    var purgePeriod: Duration = Duration.ofHours(1L)
+}
+
+@Suppress("MagicNumber")
+class AuthProperties {
+    var maxBatchSize: Int = 100
+    var batchParallelism: Int = Runtime.getRuntime().availableProcessors()
+    var threads: Int = Runtime.getRuntime().availableProcessors()
+    var queueCapacity: Int = 1_000
+    var blockingThreads: Int = 64
+    var blockingQueueCapacity: Int = 1_000
+}
+
+@Suppress("MagicNumber")
+class ContractWalletProperties {
+    var cacheMaxEntries: Long = 10_000L
+    var validSignatureTtl: Duration = Duration.ofHours(1L)
+    var negativeTtl: Duration = Duration.ofSeconds(30L)
+    var codeTtl: Duration = Duration.ofHours(6L)
+    var probeTimeout: Duration = Duration.ofSeconds(5L)
+    var probeChains: List<Long> = listOf(137L, 1L)
+    var probeThreads: Int = 8
+    var probeQueueCapacity: Int = 100
+}
@@ -0,0 +1,49 @@
+package com.ampnet.identityservice.config
+
+import com.ampnet.identityservice.util.boundedExecutor
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import java.util.concurrent.ExecutorService
+
+@Configuration
+class AuthExecutorConfig {
+
+    companion object {
+        const val AUTH_EXECUTOR = "authExecutor"
+        const val AUTH_BLOCKING_EXECUTOR = "authBlockingExecutor"
+        private const val REJECTED_METRIC = "auth.executor.rejected"
+    }
+
+    /**
+     * Executor for signature recovery and token signing only. It is sized to the number of processors, so
+     * a burst of logins queues here and, once the queue is full, is rejected instead of starving other routes.
+     */
+    @Bean(AUTH_EXECUTOR)
+    fun authExecutor(applicationProperties: ApplicationProperties, meterRegistry: MeterRegistry): ExecutorService {
+        val properties = applicationProperties.auth
+        return boundedExecutor(
+            AUTH_EXECUTOR, properties.threads, properties.queueCapacity, REJECTED_METRIC, meterRegistry
+        )
+    }
+
+    /**
+     * Executor for login requests, which wait on the challenge store, the database and contract wallet RPC calls.
+     * It is sized for blocking calls and kept apart from [AUTH_EXECUTOR], so slow contract wallet logins do not
+     * hold the threads which verify signatures of other logins.
+     */
+    @Bean(AUTH_BLOCKING_EXECUTOR)
+    fun authBlockingExecutor(
+        applicationProperties: ApplicationProperties,
+        meterRegistry: MeterRegistry
+    ): ExecutorService {
+        val properties = applicationProperties.auth
+        return boundedExecutor(
+            AUTH_BLOCKING_EXECUTOR,
+            properties.blockingThreads,
+            properties.blockingQueueCapacity,
+            REJECTED_METRIC,
+            meterRegistry
+        )
+    }
+}
@@ -1,8 +1,8 @@
 package com.ampnet.identityservice.config
 
 import com.ampnet.core.jwt.AuthenticationEntryPointExceptionHandler
-import com.ampnet.core.jwt.filter.JwtAuthenticationFilter
-import com.ampnet.core.jwt.provider.JwtAuthenticationProvider
+import com.ampnet.identityservice.security.JwtAuthenticationFilter
+import com.ampnet.identityservice.security.JwtAuthenticationProvider
 import com.fasterxml.jackson.databind.ObjectMapper
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.annotation.Bean
@@ -35,10 +35,9 @@ class WebSecurityConfig(private val objectMapper: ObjectMapper) : WebSecurityCon
     @Autowired
     fun globalUserDetails(
         authBuilder: AuthenticationManagerBuilder,
-        applicationProperties: ApplicationProperties
+        jwtAuthenticationProvider: JwtAuthenticationProvider
     ) {
-        val authenticationProvider = JwtAuthenticationProvider(applicationProperties.jwt.publicKey)
-        authBuilder.authenticationProvider(authenticationProvider)
+        authBuilder.authenticationProvider(jwtAuthenticationProvider)
     }
 
     @Bean
@@ -65,7 +64,7 @@ class WebSecurityConfig(private val objectMapper: ObjectMapper) : WebSecurityCon
 
     override fun configure(http: HttpSecurity) {
         val authenticationHandler = AuthenticationEntryPointExceptionHandler(objectMapper)
-        val authenticationTokenFilter = JwtAuthenticationFilter()
+        val authenticationTokenFilter = JwtAuthenticationFilter(authenticationManager())
 
         http.cors().and().csrf().disable()
             .formLogin().disable()
@@ -74,6 +73,7 @@ class WebSecurityConfig(private val objectMapper: ObjectMapper) : WebSecurityCon
             .authorizeRequests()
             .antMatchers(HttpMethod.GET, "/actuator/**").permitAll()
             .antMatchers(HttpMethod.GET, "/docs/index.html").permitAll()
+            .antMatchers(HttpMethod.GET, "/.well-known/jwks.json").permitAll()
             .antMatchers("/authorize/**").permitAll()
             .antMatchers(HttpMethod.POST, "/veriff/webhook/*").permitAll()
             .antMatchers(HttpMethod.GET, "/auto_invest/*/**").permitAll()
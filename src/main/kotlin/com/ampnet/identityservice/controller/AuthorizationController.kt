@@ -1,27 +1,35 @@
 package com.ampnet.identityservice.controller
 
+import com.ampnet.identityservice.config.AuthExecutorConfig
 import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequest
 import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequestByMessage
+import com.ampnet.identityservice.controller.pojo.request.BatchAuthorizationRequest
 import com.ampnet.identityservice.controller.pojo.request.PayloadRequest
 import com.ampnet.identityservice.controller.pojo.request.RefreshTokenRequest
 import com.ampnet.identityservice.controller.pojo.response.AccessRefreshTokenResponse
+import com.ampnet.identityservice.controller.pojo.response.BatchAuthorizationItemResponse
+import com.ampnet.identityservice.controller.pojo.response.BatchAuthorizationResponse
 import com.ampnet.identityservice.controller.pojo.response.PayloadResponse
+import com.ampnet.identityservice.service.LoginService
 import com.ampnet.identityservice.service.TokenService
-import com.ampnet.identityservice.service.UserService
 import com.ampnet.identityservice.service.VerificationService
 import com.ampnet.identityservice.util.ChainId
 import com.ampnet.identityservice.util.WalletAddress
 import mu.KLogging
+import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.http.ResponseEntity
 import org.springframework.web.bind.annotation.PostMapping
 import org.springframework.web.bind.annotation.RequestBody
 import org.springframework.web.bind.annotation.RestController
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
 
 @RestController
 class AuthorizationController(
     private val verificationService: VerificationService,
     private val tokenService: TokenService,
-    private val userService: UserService
+    private val loginService: LoginService,
+    @Qualifier(AuthExecutorConfig.AUTH_BLOCKING_EXECUTOR) private val authBlockingExecutor: ExecutorService
 ) {
 
     companion object : KLogging()
@@ -41,33 +49,65 @@ class AuthorizationController(
     }
 
     @PostMapping("/authorize/jwt")
-    fun authorizeJwt(@RequestBody request: AuthorizationRequest): ResponseEntity<AccessRefreshTokenResponse> {
+    fun authorizeJwt(
+        @RequestBody request: AuthorizationRequest
+    ): CompletableFuture<ResponseEntity<AccessRefreshTokenResponse>> {
         logger.debug { "Received request for token with address: ${request.address}" }
-        verificationService.verifyPayload(
-            address = WalletAddress(request.address),
-            signedPayload = request.signedPayload,
-            chainId = request.chainId?.let { ChainId(it) }
+        return CompletableFuture.supplyAsync(
+            {
+                verificationService.verifyPayload(
+                    address = WalletAddress(request.address),
+                    signedPayload = request.signedPayload,
+                    chainId = request.chainId?.let { ChainId(it) },
+                    messageToSign = request.messageToSign
+                )
+                val accessAndRefreshToken = loginService.login(WalletAddress(request.address))
+                ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
+            },
+            authBlockingExecutor
+        )
+    }
+
+    @PostMapping("/authorize/jwt/batch")
+    fun authorizeJwtBatch(
+        @RequestBody request: BatchAuthorizationRequest
+    ): CompletableFuture<ResponseEntity<BatchAuthorizationResponse>> {
+        logger.debug { "Received batch request for tokens with ${request.requests.size} addresses" }
+        return CompletableFuture.supplyAsync(
+            {
+                val results = loginService.loginBatch(request.requests)
+                ResponseEntity.ok(BatchAuthorizationResponse(results.map { BatchAuthorizationItemResponse(it) }))
+            },
+            authBlockingExecutor
         )
-        val accessAndRefreshToken = tokenService.generateAccessAndRefreshForUser(WalletAddress(request.address))
-        logger.debug { "User address: ${request.address} successfully authorized." }
-        userService.createUser(WalletAddress(request.address))
-        return ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
     }
 
     @PostMapping("/authorize/jwt/by-message")
-    fun jwtByMessage(@RequestBody request: AuthorizationRequestByMessage): ResponseEntity<AccessRefreshTokenResponse> {
+    fun jwtByMessage(
+        @RequestBody request: AuthorizationRequestByMessage
+    ): CompletableFuture<ResponseEntity<AccessRefreshTokenResponse>> {
         logger.debug { "Received request for token by message to sign: ${request.messageToSign}" }
-        verificationService.verifyPayloadByMessage(request)
-        val accessAndRefreshToken = tokenService.generateAccessAndRefreshForUser(WalletAddress(request.address))
-        logger.debug { "User address: ${request.address} successfully authorized." }
-        userService.createUser(WalletAddress(request.address))
-        return ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
+        return CompletableFuture.supplyAsync(
+            {
+                verificationService.verifyPayloadByMessage(request)
+                val accessAndRefreshToken = loginService.login(WalletAddress(request.address))
+                ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
+            },
+            authBlockingExecutor
+        )
     }
 
     @PostMapping("/authorize/refresh")
-    fun refreshToken(@RequestBody request: RefreshTokenRequest): ResponseEntity<AccessRefreshTokenResponse> {
+    fun refreshToken(
+        @RequestBody request: RefreshTokenRequest
+    ): CompletableFuture<ResponseEntity<AccessRefreshTokenResponse>> {
         logger.debug { "Received request to refresh token" }
-        val accessAndRefreshToken = tokenService.generateAccessAndRefreshFromRefreshToken(request.refreshToken)
-        return ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
+        return CompletableFuture.supplyAsync(
+            {
+                val accessAndRefreshToken = tokenService.generateAccessAndRefreshFromRefreshToken(request.refreshToken)
+                ResponseEntity.ok(AccessRefreshTokenResponse(accessAndRefreshToken))
+            },
+            authBlockingExecutor
+        )
     }
 }
@@ -1,6 +1,8 @@
 package com.ampnet.identityservice.controller
 
 import com.ampnet.core.jwt.exception.TokenException
+import com.ampnet.identityservice.security.AccessTokenClaims
+import com.ampnet.identityservice.security.JwtAuthenticationToken
 import com.ampnet.identityservice.util.WalletAddress
 import org.springframework.security.core.context.SecurityContextHolder
 
@@ -9,4 +11,7 @@ internal object ControllerUtils {
     fun getAddressFromSecurityContext(): WalletAddress =
         (SecurityContextHolder.getContext().authentication.principal as? String)?.let { WalletAddress(it) }
             ?: throw TokenException("SecurityContext authentication principal must be String")
+
+    fun getAccessTokenClaimsFromSecurityContext(): AccessTokenClaims? =
+        (SecurityContextHolder.getContext().authentication as? JwtAuthenticationToken)?.claims
 }
@@ -0,0 +1,23 @@
+package com.ampnet.identityservice.controller
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.controller.pojo.response.JwksResponse
+import com.ampnet.identityservice.security.JwtKeyStore
+import org.springframework.http.CacheControl
+import org.springframework.http.ResponseEntity
+import org.springframework.web.bind.annotation.GetMapping
+import org.springframework.web.bind.annotation.RestController
+import java.time.Instant
+
+@RestController
+class JwksController(
+    private val jwtKeyStore: JwtKeyStore,
+    private val applicationProperties: ApplicationProperties
+) {
+
+    @GetMapping("/.well-known/jwks.json")
+    fun getJwks(): ResponseEntity<JwksResponse> =
+        ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(applicationProperties.jwt.jwksMaxAge).cachePublic())
+            .body(JwksResponse(jwtKeyStore.publishedKeys(Instant.now())))
+}
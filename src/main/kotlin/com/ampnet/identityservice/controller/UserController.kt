@@ -58,6 +58,7 @@ class UserController(
         val address = ControllerUtils.getAddressFromSecurityContext()
         logger.debug { "Received request to logout user: $address" }
         tokenService.deleteRefreshToken(address)
+        ControllerUtils.getAccessTokenClaimsFromSecurityContext()?.let { tokenService.revokeAccessToken(it) }
         return ResponseEntity.ok().build()
     }
 
@@ -2,6 +2,13 @@ package com.ampnet.identityservice.controller.pojo.request
 
 data class PayloadRequest(val address: String)
 
-data class AuthorizationRequest(val address: String, val signedPayload: String, val chainId: Long?)
+data class AuthorizationRequest(
+    val address: String,
+    val signedPayload: String,
+    val chainId: Long?,
+    val messageToSign: String? = null
+)
+
+data class BatchAuthorizationRequest(val requests: List<AuthorizationRequest>)
 
 data class AuthorizationRequestByMessage(val address: String, val messageToSign: String, val signedPayload: String)
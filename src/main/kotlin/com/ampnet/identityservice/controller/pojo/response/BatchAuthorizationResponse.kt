@@ -0,0 +1,19 @@
+package com.ampnet.identityservice.controller.pojo.response
+
+import com.ampnet.identityservice.service.pojo.BatchLoginResult
+
+data class BatchAuthorizationResponse(val results: List<BatchAuthorizationItemResponse>)
+
+data class BatchAuthorizationItemResponse(
+    val address: String,
+    val token: AccessRefreshTokenResponse?,
+    val errCode: String?,
+    val message: String?
+) {
+    constructor(result: BatchLoginResult) : this(
+        result.address.value,
+        result.token?.let { AccessRefreshTokenResponse(it) },
+        result.errorCode?.let { it.categoryCode + it.specificCode },
+        result.message
+    )
+}
@@ -0,0 +1,9 @@
+package com.ampnet.identityservice.controller.pojo.response
+
+import com.ampnet.identityservice.security.JwtKey
+
+data class JwksResponse(val keys: List<Map<String, String>>) {
+    constructor(keys: Collection<JwtKey>) : this(
+        keys.map { it.jwk + mapOf("kid" to it.keyId, "use" to "sig", "alg" to it.algorithm.name) }
+    )
+}
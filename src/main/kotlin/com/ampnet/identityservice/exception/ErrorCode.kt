@@ -10,6 +10,9 @@ enum class ErrorCode(val categoryCode: String, var specificCode: String, var mes
     AUTH_INVALID_REFRESH_TOKEN("02", "08", "Invalid refresh token"),
     AUTH_PAYLOAD_MISSING("02", "09", "Payload missing for address"),
     AUTH_SIGNED_PAYLOAD_INVALID("02", "10", "Signature is invalid"),
+    AUTH_BATCH_TOO_LARGE("02", "11", "Too many addresses in authorization batch"),
+    AUTH_BUSY("02", "12", "Too many concurrent authorization requests"),
+    AUTH_VERIFICATION_FAILED("02", "13", "Failed to verify signed payload"),
 
     // Users: 03
     USER_JWT_MISSING("03", "01", "Missing user address defined in JWT"),
@@ -5,6 +5,7 @@ import org.springframework.http.HttpStatus
 import org.springframework.web.bind.annotation.ExceptionHandler
 import org.springframework.web.bind.annotation.ResponseStatus
 import org.springframework.web.bind.annotation.RestControllerAdvice
+import java.util.concurrent.RejectedExecutionException
 
 @RestControllerAdvice
 class GlobalExceptionHandler {
@@ -39,6 +40,13 @@ class GlobalExceptionHandler {
         return generateErrorResponse(ErrorCode.REG_RECAPTCHA, exception.message)
     }
 
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RejectedExecutionException::class)
+    fun handleRejectedExecutionException(exception: RejectedExecutionException): ErrorResponse {
+        logger.warn { "RejectedExecutionException: ${exception.message}" }
+        return generateErrorResponse(ErrorCode.AUTH_BUSY, exception.message)
+    }
+
     private fun generateErrorResponse(
         errorCode: ErrorCode,
         systemMessage: String?,
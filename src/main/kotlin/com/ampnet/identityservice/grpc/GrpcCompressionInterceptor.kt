@@ -0,0 +1,31 @@
+package com.ampnet.identityservice.grpc
+
+import io.grpc.CompressorRegistry
+import io.grpc.Metadata
+import io.grpc.ServerCall
+import io.grpc.ServerCallHandler
+import io.grpc.ServerInterceptor
+
+/**
+ * Compresses responses with the given encoding, an empty encoding disables compression. gRPC negotiates it
+ * per call: responses stay uncompressed for clients which do not list the encoding in `grpc-accept-encoding`.
+ */
+class GrpcCompressionInterceptor(private val encoding: String) : ServerInterceptor {
+
+    init {
+        require(encoding.isEmpty() || CompressorRegistry.getDefaultInstance().lookupCompressor(encoding) != null) {
+            "Unsupported gRPC compression: $encoding"
+        }
+    }
+
+    override fun <ReqT : Any?, RespT : Any?> interceptCall(
+        call: ServerCall<ReqT, RespT>,
+        headers: Metadata,
+        next: ServerCallHandler<ReqT, RespT>
+    ): ServerCall.Listener<ReqT> {
+        if (encoding.isNotEmpty()) {
+            call.setCompression(encoding)
+        }
+        return next.startCall(call, headers)
+    }
+}
@@ -1,5 +1,7 @@
 package com.ampnet.identityservice.grpc
 
+import com.ampnet.identityservice.config.ApplicationProperties
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor
 import net.devh.boot.grpc.server.security.authentication.BasicGrpcAuthenticationReader
 import net.devh.boot.grpc.server.security.authentication.GrpcAuthenticationReader
 import org.springframework.context.annotation.Bean
@@ -12,4 +14,10 @@ class GrpcConfig {
     fun authenticationReader(): GrpcAuthenticationReader {
         return BasicGrpcAuthenticationReader()
     }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    fun compressionInterceptor(applicationProperties: ApplicationProperties): GrpcCompressionInterceptor {
+        return GrpcCompressionInterceptor(applicationProperties.grpc.compression)
+    }
 }
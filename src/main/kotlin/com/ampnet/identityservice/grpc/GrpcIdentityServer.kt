@@ -1,31 +1,42 @@
 package com.ampnet.identityservice.grpc
 
-import com.ampnet.identityservice.persistence.model.User
-import com.ampnet.identityservice.persistence.model.UserInfo
-import com.ampnet.identityservice.persistence.repository.UserInfoRepository
-import com.ampnet.identityservice.persistence.repository.UserRepository
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
 import com.ampnet.identityservice.proto.GetUsersRequest
 import com.ampnet.identityservice.proto.IdentityServiceGrpc
-import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.proto.UserChangeResponse
 import com.ampnet.identityservice.proto.UsersResponse
+import com.ampnet.identityservice.proto.WatchUsersRequest
+import com.ampnet.identityservice.util.WalletAddress
+import com.google.protobuf.FieldMask
+import io.grpc.Status
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
 import mu.KLogging
 import net.devh.boot.grpc.server.service.GrpcService
+import java.util.concurrent.RejectedExecutionException
 
 @GrpcService
 class GrpcIdentityServer(
-    private val userRepository: UserRepository,
-    private val userInfoRepository: UserInfoRepository
+    private val userResponseRepository: UserResponseRepository,
+    private val userResponseCache: UserResponseCache,
+    private val userChangeFeed: UserChangeFeed,
+    private val applicationProperties: ApplicationProperties
 ) : IdentityServiceGrpc.IdentityServiceImplBase() {
 
     companion object : KLogging()
 
     override fun getUsers(request: GetUsersRequest, responseObserver: StreamObserver<UsersResponse>) {
         logger.debug { "Received gRPC getUsers: $request" }
-        val users = userRepository.findAllById(request.addressesList)
-        val usersInfos = userInfoRepository.findAllById(users.mapNotNull { it.userInfoUuid })
-            .associateBy { it.uuid }
-        val usersResponse = users.map { generateUserResponse(it, usersInfos[it.userInfoUuid]) }
+        val fields = getRequestedFields(request.fieldMask, responseObserver) ?: return
+        val usersResponse = try {
+            userResponseCache.getAll(canonicalAddresses(request), fields)
+        } catch (ex: RejectedExecutionException) {
+            logger.warn { "Rejected gRPC getUsers: ${ex.message}" }
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED.withDescription(ex.message).asRuntimeException())
+            return
+        }
         logger.debug { "UsersResponse size: ${usersResponse.size}" }
         val response = UsersResponse.newBuilder()
             .addAllUsers(usersResponse)
@@ -34,20 +45,51 @@ class GrpcIdentityServer(
         responseObserver.onCompleted()
     }
 
-    fun generateUserResponse(user: User, userInfo: UserInfo?): UserResponse =
-        UserResponse.newBuilder().apply {
-            address = user.address
-            email = user.email ?: ""
-            createdAt = user.createdAt.toEpochSecond()
-            language = user.language ?: ""
-            userInfo?.let {
-                firstName = userInfo.firstName
-                lastName = userInfo.lastName
-                dateOfBirth = userInfo.dateOfBirth ?: ""
-                personalNumber = userInfo.idNumber ?: ""
-                documentNumber = userInfo.document.number ?: ""
-                documentValidFrom = userInfo.document.validFrom ?: ""
-                documentValidUntil = userInfo.document.validUntil ?: ""
-            }
-        }.build()
+    /**
+     * Streams users in chunks of [GrpcProperties.streamChunkSize] addresses, ordered by address. Every chunk
+     * continues after the last address of the previous one and is loaded only when the client is ready to
+     * receive it, so large reports never hold all users in memory. Streams bypass [UserResponseCache] so reports
+     * do not evict hot users.
+     */
+    override fun streamUsers(request: GetUsersRequest, responseObserver: StreamObserver<UsersResponse>) {
+        logger.debug { "Received gRPC streamUsers for ${request.addressesCount} addresses" }
+        val fields = getRequestedFields(request.fieldMask, responseObserver) ?: return
+        val chunks = canonicalAddresses(request).sorted()
+            .chunked(applicationProperties.grpc.streamChunkSize)
+            .iterator()
+        UsersStream(responseObserver as ServerCallStreamObserver<UsersResponse>, chunks) {
+            UsersResponse.newBuilder()
+                .addAllUsers(userResponseRepository.findAllByAddresses(it, fields).sortedBy { user -> user.address })
+                .build()
+        }.start()
+    }
+
+    /**
+     * Streams user changes after the request cursor, see [UserChangeFeed]. Clients keep a replica of users by
+     * loading them once and resuming the watch with the cursor of the last received change.
+     */
+    override fun watchUsers(request: WatchUsersRequest, responseObserver: StreamObserver<UserChangeResponse>) {
+        logger.debug { "Received gRPC watchUsers after cursor: ${request.cursor}" }
+        val fields = getRequestedFields(request.fieldMask, responseObserver) ?: return
+        userChangeFeed.watch(responseObserver as ServerCallStreamObserver<UserChangeResponse>, request.cursor, fields)
+    }
+
+    /**
+     * @return fields selected by the field mask, null if the call is closed for an invalid mask.
+     */
+    private fun getRequestedFields(fieldMask: FieldMask, responseObserver: StreamObserver<*>): UserResponseFields? =
+        try {
+            UserResponseFields.fromPaths(fieldMask.pathsList)
+        } catch (ex: IllegalArgumentException) {
+            logger.debug { "Invalid field mask: ${ex.message}" }
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.message).asRuntimeException())
+            null
+        }
+
+    /**
+     * Addresses are stored in lowercase, requested addresses are normalized and duplicates are removed
+     * while keeping the order of the request.
+     */
+    private fun canonicalAddresses(request: GetUsersRequest): List<String> =
+        request.addressesList.map { WalletAddress(it.trim()).value }.distinct()
 }
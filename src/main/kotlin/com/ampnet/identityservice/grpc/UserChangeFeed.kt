@@ -0,0 +1,146 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserChange
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserChangeRepository
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserChangeResponse
+import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import io.grpc.Status
+import io.grpc.stub.ServerCallStreamObserver
+import io.micrometer.core.instrument.MeterRegistry
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Component
+import java.time.ZonedDateTime
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Pushes user changes recorded by [com.ampnet.identityservice.service.impl.UserChangeOutbox] to WatchUsers calls.
+ * A single thread polls the outbox every [GrpcProperties.watchPollPeriod] and sends each watcher the changes
+ * after its cursor together with the current state of the changed users. Watchers which are not ready are
+ * skipped until the next poll, so a slow client holds at most one batch of changes in memory.
+ *
+ * Change ids are assigned on insert but become visible on commit, so a change with a lower id can become visible
+ * after a higher one. Changes are therefore delivered strictly in id order: a watcher stops at a missing id and
+ * retries it on the next polls. A missing id is skipped only once it has stayed missing for longer than
+ * [GrpcProperties.watchGapTimeout], which happens for ids of rolled back transactions. Watching from cursor 0
+ * starts at the oldest retained change.
+ */
+@Component
+class UserChangeFeed(
+    private val userChangeRepository: UserChangeRepository,
+    private val userResponseRepository: UserResponseRepository,
+    private val timeProvider: ZonedDateTimeProvider,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry,
+    scheduledExecutorServiceProvider: ScheduledExecutorServiceProvider
+) : DisposableBean {
+
+    companion object : KLogging() {
+        const val WATCH_NAME = "UserChangeFeed"
+    }
+
+    private class Watcher(
+        val observer: ServerCallStreamObserver<UserChangeResponse>,
+        val fields: UserResponseFields,
+        var cursor: Long
+    ) {
+        var gapSeenAt: ZonedDateTime? = null
+    }
+
+    private val properties = applicationProperties.grpc
+    private val watchers = ConcurrentHashMap.newKeySet<Watcher>()
+    private val executorService = scheduledExecutorServiceProvider.newSingleThreadScheduledExecutor(WATCH_NAME)
+
+    init {
+        meterRegistry.gauge("grpc.user.watchers", watchers) { it.size.toDouble() }
+        val period = properties.watchPollPeriod.toMillis()
+        executorService.scheduleAtFixedRate({ poll() }, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    override fun destroy() {
+        logger.info { "Shutting down user change feed executor service..." }
+        executorService.shutdown()
+    }
+
+    /**
+     * Registers the call to receive changes after the cursor until the client cancels it. A cursor which is no
+     * longer retained closes the call with OUT_OF_RANGE, the client has to reload users and watch from 0.
+     */
+    fun watch(observer: ServerCallStreamObserver<UserChangeResponse>, cursor: Long, fields: UserResponseFields) {
+        if (cursor > 0L && userChangeRepository.existsById(cursor).not()) {
+            logger.debug { "User change cursor: $cursor is not retained" }
+            observer.onError(
+                Status.OUT_OF_RANGE.withDescription("Changes after cursor: $cursor are not retained")
+                    .asRuntimeException()
+            )
+            return
+        }
+        val watcher = Watcher(observer, fields, cursor)
+        observer.setOnCancelHandler {
+            logger.debug { "Client cancelled user change watch" }
+            watchers.remove(watcher)
+        }
+        watchers.add(watcher)
+    }
+
+    fun size(): Int = watchers.size
+
+    /**
+     * Sends pending changes to every ready watcher. Failures are logged and retried on the next poll.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun poll() {
+        if (watchers.isEmpty()) return
+        try {
+            val latestId = userChangeRepository.findLatestId()
+            val now = timeProvider.getZonedDateTime()
+            watchers.forEach { send(it, latestId, now) }
+        } catch (ex: Exception) {
+            logger.warn("Failed to send user changes", ex)
+        }
+    }
+
+    private fun send(watcher: Watcher, latestId: Long, now: ZonedDateTime) {
+        while (watcher.cursor < latestId && watcher.observer.isReady) {
+            val changes = userChangeRepository.findAfter(watcher.cursor, properties.watchBatchSize)
+            if (changes.isEmpty() || !isNextOrGapExpired(watcher, changes.first().id, now)) return
+            val contiguous = changes.takeContiguous()
+            val users = userResponseRepository
+                .findAllByAddresses(contiguous.map { it.address }.distinct(), watcher.fields)
+                .associateBy { it.address }
+            contiguous.forEach { watcher.observer.onNext(toResponse(it, users[it.address])) }
+            watcher.cursor = contiguous.last().id
+            watcher.gapSeenAt = null
+        }
+    }
+
+    private fun isNextOrGapExpired(watcher: Watcher, id: Long, now: ZonedDateTime): Boolean {
+        if (watcher.cursor == 0L || id == watcher.cursor + 1) return true
+        val gapSeenAt = watcher.gapSeenAt ?: now.also { watcher.gapSeenAt = it }
+        val expired = gapSeenAt.plus(properties.watchGapTimeout).isAfter(now).not()
+        if (expired) {
+            logger.warn { "Skipping missing user changes: ${watcher.cursor + 1} to ${id - 1}, they were not committed" }
+        }
+        return expired
+    }
+
+    private fun List<UserChange>.takeContiguous(): List<UserChange> {
+        val end = (1 until size).firstOrNull { this[it].id != this[it - 1].id + 1 } ?: size
+        return subList(0, end)
+    }
+
+    private fun toResponse(change: UserChange, user: UserResponse?): UserChangeResponse {
+        val builder = UserChangeResponse.newBuilder()
+            .setCursor(change.id)
+            .setType(UserChangeResponse.Type.valueOf(change.type.name))
+            .setCreatedAt(change.createdAt.toEpochSecond())
+        user?.let { builder.user = it }
+        return builder.build()
+    }
+}
@@ -0,0 +1,77 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.service.pojo.UserChangedEvent
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import mu.KLogging
+import org.springframework.stereotype.Component
+import org.springframework.transaction.event.TransactionalEventListener
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Built [UserResponse] messages by address and requested fields for gRPC lookups of hot wallets. Messages are
+ * immutable and memoize their serialized size, so a response is assembled from cached users without building
+ * protos or database access. Entries are evicted once the transaction which changed the user commits; users
+ * loaded while an eviction happened are returned but not kept, so a concurrent load never leaves stale data
+ * behind. Other nodes do not receive the evictions, their entries expire after [GrpcProperties.userCacheTtl].
+ */
+@Component
+class UserResponseCache(
+    private val userResponseLoader: UserResponseLoader,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) {
+
+    companion object : KLogging()
+
+    private val properties = applicationProperties.grpc
+    private val evictions = AtomicLong()
+    private val requestedFields = ConcurrentHashMap.newKeySet<UserResponseFields>()
+
+    private data class UserKey(val address: String, val fields: UserResponseFields)
+
+    private val users: Cache<UserKey, UserResponse> = Caffeine.newBuilder()
+        .maximumSize(properties.userCacheMaxEntries)
+        .expireAfterWrite(properties.userCacheTtl)
+        .recordStats()
+        .build()
+
+    init {
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "grpc.users")
+    }
+
+    /**
+     * @return existing users in the order of requested addresses, duplicates are returned once.
+     */
+    fun getAll(
+        addresses: Collection<String>,
+        fields: UserResponseFields = UserResponseFields.ALL
+    ): List<UserResponse> {
+        val keys = addresses.distinct().map { UserKey(it, fields) }
+        val cached = users.getAllPresent(keys)
+        val missing = keys.filterNot { cached.containsKey(it) }.map { it.address }
+        if (missing.isEmpty()) return keys.mapNotNull { cached[it] }
+        requestedFields.add(fields)
+        val evictionsBeforeLoad = evictions.get()
+        val loaded = userResponseLoader.load(missing, fields)
+        val loadedByKey = loaded.mapKeys { UserKey(it.key, fields) }
+        users.putAll(loadedByKey)
+        if (evictions.get() != evictionsBeforeLoad) {
+            users.invalidateAll(loadedByKey.keys)
+        }
+        return keys.mapNotNull { cached[it] ?: loaded[it.address] }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun onUserChanged(event: UserChangedEvent) {
+        evictions.incrementAndGet()
+        users.invalidateAll(requestedFields.map { UserKey(event.address, it) })
+        logger.debug { "Evicted gRPC user response for address: ${event.address}" }
+    }
+}
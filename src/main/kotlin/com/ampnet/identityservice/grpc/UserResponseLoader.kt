@@ -0,0 +1,74 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.util.boundedExecutor
+import io.micrometer.core.instrument.MeterRegistry
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Component
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+
+/**
+ * Loads users for bulk gRPC lookups in chunks of [GrpcProperties.lookupChunkSize] addresses. Chunks are queried
+ * concurrently on a pool of [GrpcProperties.lookupParallelism] threads, each holding one database connection
+ * while it runs, so the pool must stay well below the size of the connection pool. At most
+ * [GrpcProperties.lookupQueueCapacity] chunks wait for a thread, a lookup which does not fit is rejected.
+ */
+@Component
+class UserResponseLoader(
+    private val userResponseRepository: UserResponseRepository,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) : DisposableBean {
+
+    companion object : KLogging() {
+        private const val LOOKUP_NAME = "GrpcUserLookup"
+        private const val REJECTED_METRIC = "grpc.lookup.rejected"
+    }
+
+    private val properties = applicationProperties.grpc
+    private val lookupExecutor = boundedExecutor(
+        LOOKUP_NAME, properties.lookupParallelism, properties.lookupQueueCapacity, REJECTED_METRIC, meterRegistry
+    )
+
+    /**
+     * @return users by address, missing users are not in the map.
+     * @throws RejectedExecutionException if the lookup queue is full.
+     */
+    @Throws(RejectedExecutionException::class)
+    fun load(addresses: List<String>, fields: UserResponseFields): Map<String, UserResponse> {
+        val chunks = addresses.chunked(properties.lookupChunkSize)
+        val users = if (chunks.size <= 1) {
+            chunks.flatMap { userResponseRepository.findAllByAddresses(it, fields) }
+        } else {
+            logger.debug { "Loading ${addresses.size} users in ${chunks.size} chunks" }
+            val futures = ArrayList<Future<List<UserResponse>>>(chunks.size)
+            try {
+                chunks.mapTo(futures) { chunk ->
+                    lookupExecutor.submit(Callable { userResponseRepository.findAllByAddresses(chunk, fields) })
+                }
+                futures.flatMap { getChunk(it) }
+            } finally {
+                futures.forEach { it.cancel(true) }
+            }
+        }
+        return users.associateBy { it.address }
+    }
+
+    override fun destroy() {
+        lookupExecutor.shutdownNow()
+    }
+
+    private fun getChunk(future: Future<List<UserResponse>>): List<UserResponse> =
+        try {
+            future.get()
+        } catch (ex: ExecutionException) {
+            throw ex.cause ?: ex
+        }
+}
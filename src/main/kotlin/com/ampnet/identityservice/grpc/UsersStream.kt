@@ -0,0 +1,47 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.proto.UsersResponse
+import io.grpc.Status
+import io.grpc.stub.ServerCallStreamObserver
+import mu.KLogging
+
+/**
+ * Emits one [UsersResponse] per chunk of addresses while the transport is ready. Once the client stops reading,
+ * loading is suspended until the next on-ready callback, so at most one chunk is buffered per call.
+ * gRPC runs the callbacks of a call one at a time, so the state needs no synchronization.
+ */
+class UsersStream(
+    private val observer: ServerCallStreamObserver<UsersResponse>,
+    private val chunks: Iterator<List<String>>,
+    private val loadChunk: (List<String>) -> UsersResponse
+) : Runnable {
+
+    companion object : KLogging()
+
+    private var closed = false
+
+    fun start() {
+        observer.setOnCancelHandler {
+            logger.debug { "Client cancelled users stream" }
+            closed = true
+        }
+        observer.setOnReadyHandler(this)
+    }
+
+    @Suppress("TooGenericExceptionCaught")
+    override fun run() {
+        try {
+            while (!closed && observer.isReady && chunks.hasNext()) {
+                observer.onNext(loadChunk(chunks.next()))
+            }
+            if (!closed && !chunks.hasNext()) {
+                closed = true
+                observer.onCompleted()
+            }
+        } catch (ex: RuntimeException) {
+            logger.warn("Failed to stream users", ex)
+            closed = true
+            observer.onError(Status.INTERNAL.withDescription("Failed to load users").asRuntimeException())
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ampnet.identityservice.persistence.model
+
+import java.time.ZonedDateTime
+import javax.persistence.Column
+import javax.persistence.Entity
+import javax.persistence.Id
+import javax.persistence.Table
+
+@Entity
+@Table(name = "login_challenge")
+class LoginChallenge(
+    @Id
+    val challengeKey: String,
+
+    @Column(nullable = false)
+    var payload: String,
+
+    @Column(nullable = false)
+    var expiresAt: ZonedDateTime
+)
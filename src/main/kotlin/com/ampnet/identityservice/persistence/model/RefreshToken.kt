@@ -18,8 +18,8 @@ class RefreshToken(
     @Column(nullable = false)
     var userAddress: String,
 
-    @Column(nullable = false, length = 128)
-    var token: String,
+    @Column(nullable = false, length = 32)
+    var tokenHash: ByteArray,
 
     @Column(nullable = false)
     var createdAt: ZonedDateTime
@@ -0,0 +1,26 @@
+package com.ampnet.identityservice.persistence.model
+
+import java.time.ZonedDateTime
+import javax.persistence.Column
+import javax.persistence.Entity
+import javax.persistence.GeneratedValue
+import javax.persistence.GenerationType
+import javax.persistence.Id
+import javax.persistence.Table
+
+@Entity
+@Table(name = "revoked_access_token")
+class RevokedAccessToken(
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    val id: Int,
+
+    @Column(nullable = false, length = 64)
+    var tokenId: String,
+
+    @Column(nullable = false)
+    var expiresAt: ZonedDateTime,
+
+    @Column(nullable = false)
+    var revokedAt: ZonedDateTime
+)
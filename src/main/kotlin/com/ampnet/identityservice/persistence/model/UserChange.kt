@@ -0,0 +1,38 @@
+package com.ampnet.identityservice.persistence.model
+
+import java.time.ZonedDateTime
+import javax.persistence.Column
+import javax.persistence.Entity
+import javax.persistence.EnumType
+import javax.persistence.Enumerated
+import javax.persistence.GeneratedValue
+import javax.persistence.GenerationType
+import javax.persistence.Id
+import javax.persistence.Table
+
+/**
+ * Outbox row for a change of the user returned by gRPC lookups, the id is the cursor of the change feed.
+ */
+@Entity
+@Table(name = "user_change")
+class UserChange(
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    val id: Long,
+
+    @Column(nullable = false)
+    val address: String,
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    val type: UserChangeType,
+
+    @Column(nullable = false)
+    val createdAt: ZonedDateTime
+) {
+    constructor(address: String, type: UserChangeType, createdAt: ZonedDateTime) : this(0, address, type, createdAt)
+}
+
+enum class UserChangeType {
+    CREATED, EMAIL_UPDATED, KYC_CONNECTED
+}
@@ -0,0 +1,11 @@
+package com.ampnet.identityservice.persistence.model
+
+/**
+ * User data embedded in access tokens, read with a single query over `app_user` and `user_info`.
+ */
+interface UserClaimsView {
+    val language: String?
+    val userInfoUuid: String?
+    val deactivated: Boolean?
+    val documentValidUntil: String?
+}
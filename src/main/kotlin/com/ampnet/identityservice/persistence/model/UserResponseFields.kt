@@ -0,0 +1,52 @@
+package com.ampnet.identityservice.persistence.model
+
+import java.util.EnumSet
+
+/**
+ * Field of gRPC `UserResponse` with its field mask path and the column it is read from.
+ */
+enum class UserResponseField(val path: String, val column: String) {
+    ADDRESS("address", "u.address"),
+    EMAIL("email", "u.email"),
+    CREATED_AT("created_at", "u.created_at"),
+    LANGUAGE("language", "u.language"),
+    FIRST_NAME("first_name", "i.first_name"),
+    LAST_NAME("last_name", "i.last_name"),
+    DATE_OF_BIRTH("date_of_birth", "i.date_of_birth"),
+    DOCUMENT_NUMBER("document_number", "i.document_number"),
+    PERSONAL_NUMBER("personal_number", "i.id_number"),
+    DOCUMENT_VALID_FROM("document_valid_from", "i.document_valid_from"),
+    DOCUMENT_VALID_UNTIL("document_valid_until", "i.document_valid_until");
+
+    val fromUserInfo: Boolean
+        get() = column.startsWith("i.")
+}
+
+/**
+ * Fields of `UserResponse` selected by a field mask, iterated in declaration order. The address is always
+ * selected because users are matched to requested addresses by it.
+ */
+data class UserResponseFields(val fields: Set<UserResponseField>) {
+
+    companion object {
+        val ALL = UserResponseFields(EnumSet.allOf(UserResponseField::class.java))
+        private val byPath = UserResponseField.values().associateBy { it.path }
+
+        /**
+         * @return all fields for an empty mask.
+         * @throws IllegalArgumentException for a path which is not a field of `UserResponse`.
+         */
+        @Throws(IllegalArgumentException::class)
+        fun fromPaths(paths: List<String>): UserResponseFields {
+            if (paths.isEmpty()) return ALL
+            val fields = EnumSet.of(UserResponseField.ADDRESS)
+            paths.forEach { path ->
+                fields.add(requireNotNull(byPath[path]) { "Unknown UserResponse field: $path" })
+            }
+            return UserResponseFields(fields)
+        }
+    }
+
+    val joinsUserInfo: Boolean
+        get() = fields.any { it.fromUserInfo }
+}
@@ -0,0 +1,32 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.persistence.model.LoginChallenge
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.transaction.annotation.Transactional
+import java.time.ZonedDateTime
+
+interface LoginChallengeRepository : JpaRepository<LoginChallenge, String> {
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(
+        """INSERT INTO login_challenge(challenge_key, payload, expires_at) VALUES (:key, :payload, :expiresAt)
+           ON CONFLICT (challenge_key) DO UPDATE
+           SET (payload, expires_at) = (EXCLUDED.payload, EXCLUDED.expires_at)""",
+        nativeQuery = true
+    )
+    fun upsert(key: String, payload: String, expiresAt: ZonedDateTime)
+
+    @Transactional
+    @Query(
+        "DELETE FROM login_challenge WHERE challenge_key = :key AND expires_at > :now RETURNING payload",
+        nativeQuery = true
+    )
+    fun take(key: String, now: ZonedDateTime): String?
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM login_challenge WHERE expires_at <= :now", nativeQuery = true)
+    fun deleteExpired(now: ZonedDateTime): Int
+}
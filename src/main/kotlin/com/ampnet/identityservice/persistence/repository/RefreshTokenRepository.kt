@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Modifying
 import org.springframework.data.jpa.repository.Query
 import org.springframework.stereotype.Repository
 import org.springframework.transaction.annotation.Transactional
+import java.time.ZonedDateTime
 
 @Repository
 interface RefreshTokenRepository : JpaRepository<RefreshToken, Int> {
@@ -15,5 +16,41 @@ interface RefreshTokenRepository : JpaRepository<RefreshToken, Int> {
         """DELETE FROM RefreshToken WHERE userAddress = :userAddress"""
     )
     fun deleteByUserAddress(userAddress: String)
-    fun findByToken(token: String): RefreshToken?
+    fun findByTokenHash(tokenHash: ByteArray): RefreshToken?
+
+    /**
+     * Creates the user if missing and replaces all refresh tokens of the user with the new one in one statement.
+     * A created user is also recorded in the `user_change` outbox.
+     *
+     * @return true if the user was created.
+     */
+    @Transactional
+    @Query(
+        """WITH created_user AS (
+               INSERT INTO app_user(address, created_at) VALUES (:userAddress, :createdAt)
+               ON CONFLICT (address) DO NOTHING
+               RETURNING address
+           ), created_change AS (
+               INSERT INTO user_change(address, type)
+               SELECT address, 'CREATED' FROM created_user
+           ), deleted_token AS (
+               DELETE FROM refresh_token WHERE user_address = :userAddress
+           )
+           INSERT INTO refresh_token(user_address, token_hash, created_at)
+           VALUES (:userAddress, :tokenHash, :createdAt)
+           RETURNING EXISTS(SELECT 1 FROM created_user)""",
+        nativeQuery = true
+    )
+    fun replaceForUser(userAddress: String, tokenHash: ByteArray, createdAt: ZonedDateTime): Boolean
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query(
+        """DELETE FROM refresh_token WHERE id IN (
+               SELECT id FROM refresh_token WHERE created_at < :createdBefore
+               ORDER BY created_at LIMIT :batchSize FOR UPDATE SKIP LOCKED
+           )""",
+        nativeQuery = true
+    )
+    fun deleteCreatedBefore(createdBefore: ZonedDateTime, batchSize: Int): Int
 }
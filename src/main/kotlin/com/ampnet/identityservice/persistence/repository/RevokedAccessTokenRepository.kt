@@ -0,0 +1,47 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.persistence.model.RevokedAccessToken
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+import java.time.ZonedDateTime
+
+@Repository
+interface RevokedAccessTokenRepository : JpaRepository<RevokedAccessToken, Int> {
+
+    /**
+     * Revocation time is taken from the database clock, so it can be compared across nodes.
+     *
+     * @return number of inserted rows, 0 if the token was already revoked.
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        """INSERT INTO revoked_access_token(token_id, expires_at, revoked_at)
+           VALUES (:tokenId, :expiresAt, statement_timestamp())
+           ON CONFLICT (token_id) DO NOTHING""",
+        nativeQuery = true
+    )
+    fun insert(tokenId: String, expiresAt: ZonedDateTime): Int
+
+    @Query("""SELECT * FROM revoked_access_token WHERE expires_at > statement_timestamp()""", nativeQuery = true)
+    fun findNotExpired(): List<RevokedAccessToken>
+
+    /**
+     * @return unexpired revocations made within [windowMillis] before the current database time.
+     */
+    @Query(
+        """SELECT * FROM revoked_access_token
+           WHERE revoked_at >= statement_timestamp() - :windowMillis * INTERVAL '1 millisecond'
+           AND expires_at > statement_timestamp()""",
+        nativeQuery = true
+    )
+    fun findRevokedWithin(windowMillis: Long): List<RevokedAccessToken>
+
+    @Modifying
+    @Transactional
+    @Query("""DELETE FROM revoked_access_token WHERE expires_at <= statement_timestamp()""", nativeQuery = true)
+    fun deleteExpired(): Int
+}
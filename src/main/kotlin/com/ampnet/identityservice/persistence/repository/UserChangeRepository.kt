@@ -0,0 +1,35 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.persistence.model.UserChange
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.stereotype.Repository
+import org.springframework.transaction.annotation.Transactional
+
+@Repository
+interface UserChangeRepository : JpaRepository<UserChange, Long> {
+
+    /**
+     * Records the change with `created_at` set by the database clock, which [deleteOlderThan] is compared against.
+     */
+    @Modifying
+    @Transactional
+    @Query("""INSERT INTO user_change(address, type) VALUES (:address, :type)""", nativeQuery = true)
+    fun insert(address: String, type: String): Int
+
+    @Query("""SELECT * FROM user_change WHERE id > :cursor ORDER BY id LIMIT :limit""", nativeQuery = true)
+    fun findAfter(cursor: Long, limit: Int): List<UserChange>
+
+    @Query("""SELECT COALESCE(MAX(id), 0) FROM user_change""", nativeQuery = true)
+    fun findLatestId(): Long
+
+    @Modifying
+    @Transactional
+    @Query(
+        """DELETE FROM user_change
+           WHERE created_at < statement_timestamp() - :retentionMillis * INTERVAL '1 millisecond'""",
+        nativeQuery = true
+    )
+    fun deleteOlderThan(retentionMillis: Long): Int
+}
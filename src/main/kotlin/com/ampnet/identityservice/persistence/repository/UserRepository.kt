@@ -1,8 +1,19 @@
 package com.ampnet.identityservice.persistence.repository
 
 import com.ampnet.identityservice.persistence.model.User
+import com.ampnet.identityservice.persistence.model.UserClaimsView
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Query
 
 interface UserRepository : JpaRepository<User, String> {
     fun findByAddress(address: String): User?
+
+    @Query(
+        """SELECT u.language AS language, CAST(u.user_info_uuid AS VARCHAR) AS userInfoUuid,
+                  i.deactivated AS deactivated, i.document_valid_until AS documentValidUntil
+           FROM app_user u LEFT JOIN user_info i ON i.uuid = u.user_info_uuid
+           WHERE u.address = :address""",
+        nativeQuery = true
+    )
+    fun findClaimsView(address: String): UserClaimsView?
 }
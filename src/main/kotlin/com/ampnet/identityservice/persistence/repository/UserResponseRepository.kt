@@ -0,0 +1,84 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.persistence.model.UserResponseField
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.proto.UserResponse
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.core.PreparedStatementCreator
+import org.springframework.jdbc.core.RowCallbackHandler
+import org.springframework.stereotype.Repository
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import java.sql.ResultSet
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import javax.sql.DataSource
+
+/**
+ * Read path for gRPC user lookups. Selects only the requested fields of [UserResponse], joining `user_info`
+ * only when one of its fields is requested, and maps rows straight into protobuf messages without entities or
+ * a persistence context. Addresses are bound as one array parameter, so the statement is the same for any
+ * number of addresses. Rows are fetched in batches of [FETCH_SIZE] inside a read-only transaction, which
+ * Postgres needs to use a cursor.
+ */
+@Repository
+class UserResponseRepository(
+    private val dataSource: DataSource,
+    transactionManager: PlatformTransactionManager
+) {
+
+    companion object {
+        private const val FETCH_SIZE = 1_000
+    }
+
+    private val jdbcTemplate by lazy { JdbcTemplate(dataSource) }
+    private val readOnlyTransaction = TransactionTemplate(transactionManager).apply { isReadOnly = true }
+    private val queries = ConcurrentHashMap<UserResponseFields, String>()
+
+    fun findAllByAddresses(
+        addresses: Collection<String>,
+        fields: UserResponseFields = UserResponseFields.ALL
+    ): List<UserResponse> {
+        if (addresses.isEmpty()) return emptyList()
+        val users = ArrayList<UserResponse>(addresses.size)
+        val query = queries.computeIfAbsent(fields) { createQuery(it) }
+        val statement = PreparedStatementCreator { connection ->
+            connection.prepareStatement(query).apply {
+                fetchSize = FETCH_SIZE
+                setArray(1, connection.createArrayOf("varchar", addresses.toTypedArray()))
+            }
+        }
+        readOnlyTransaction.execute {
+            jdbcTemplate.query(statement, RowCallbackHandler { users.add(mapRow(it, fields)) })
+        }
+        return users
+    }
+
+    private fun createQuery(fields: UserResponseFields): String {
+        val join = if (fields.joinsUserInfo) " LEFT JOIN user_info i ON i.uuid = u.user_info_uuid" else ""
+        return "SELECT ${fields.fields.joinToString { it.column }} FROM app_user u$join WHERE u.address = ANY(?)"
+    }
+
+    private fun mapRow(rs: ResultSet, fields: UserResponseFields): UserResponse {
+        val builder = UserResponse.newBuilder()
+        fields.fields.forEachIndexed { index, field -> setField(builder, field, rs, index + 1) }
+        return builder.build()
+    }
+
+    private fun setField(builder: UserResponse.Builder, field: UserResponseField, rs: ResultSet, column: Int) {
+        when (field) {
+            UserResponseField.ADDRESS -> builder.address = rs.getString(column)
+            UserResponseField.EMAIL -> builder.email = rs.getString(column).orEmpty()
+            UserResponseField.CREATED_AT ->
+                builder.createdAt = TimeUnit.MILLISECONDS.toSeconds(rs.getTimestamp(column).time)
+            UserResponseField.LANGUAGE -> builder.language = rs.getString(column).orEmpty()
+            UserResponseField.FIRST_NAME -> builder.firstName = rs.getString(column).orEmpty()
+            UserResponseField.LAST_NAME -> builder.lastName = rs.getString(column).orEmpty()
+            UserResponseField.DATE_OF_BIRTH -> builder.dateOfBirth = rs.getString(column).orEmpty()
+            UserResponseField.DOCUMENT_NUMBER -> builder.documentNumber = rs.getString(column).orEmpty()
+            UserResponseField.PERSONAL_NUMBER -> builder.personalNumber = rs.getString(column).orEmpty()
+            UserResponseField.DOCUMENT_VALID_FROM -> builder.documentValidFrom = rs.getString(column).orEmpty()
+            UserResponseField.DOCUMENT_VALID_UNTIL -> builder.documentValidUntil = rs.getString(column).orEmpty()
+        }
+    }
+}
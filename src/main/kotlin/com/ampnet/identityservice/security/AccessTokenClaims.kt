@@ -0,0 +1,9 @@
+package com.ampnet.identityservice.security
+
+data class AccessTokenClaims(
+    val address: String,
+    val issuedAt: Long,
+    val expiresAt: Long,
+    val id: String?,
+    val kyc: KycClaims? = null
+)
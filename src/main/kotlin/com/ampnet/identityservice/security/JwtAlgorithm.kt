@@ -0,0 +1,6 @@
+package com.ampnet.identityservice.security
+
+enum class JwtAlgorithm(val jcaName: String, val keyAlgorithm: String) {
+    RS256("SHA256withRSA", "RSA"),
+    ES256("SHA256withECDSA", "EC")
+}
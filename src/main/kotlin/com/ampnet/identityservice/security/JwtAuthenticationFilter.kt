@@ -0,0 +1,35 @@
+package com.ampnet.identityservice.security
+
+import org.springframework.http.HttpHeaders
+import org.springframework.security.authentication.AuthenticationManager
+import org.springframework.security.core.AuthenticationException
+import org.springframework.security.core.context.SecurityContextHolder
+import org.springframework.web.filter.OncePerRequestFilter
+import javax.servlet.FilterChain
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+/**
+ * Authenticates requests carrying a `Bearer` access token. Requests with an invalid token continue
+ * unauthenticated, so public routes keep working and protected ones are rejected by the entry point.
+ */
+class JwtAuthenticationFilter(private val authenticationManager: AuthenticationManager) : OncePerRequestFilter() {
+
+    private companion object {
+        const val BEARER_PREFIX = "Bearer "
+    }
+
+    override fun doFilterInternal(request: HttpServletRequest, response: HttpServletResponse, chain: FilterChain) {
+        val header = request.getHeader(HttpHeaders.AUTHORIZATION)
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            try {
+                SecurityContextHolder.getContext().authentication =
+                    authenticationManager.authenticate(JwtAuthenticationToken(header.substring(BEARER_PREFIX.length)))
+            } catch (ex: AuthenticationException) {
+                logger.debug("Invalid access token: ${ex.message}")
+                SecurityContextHolder.clearContext()
+            }
+        }
+        chain.doFilter(request, response)
+    }
+}
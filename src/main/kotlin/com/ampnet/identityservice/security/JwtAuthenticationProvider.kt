@@ -0,0 +1,94 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.core.jwt.exception.TokenException
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.impl.AccessTokenDenylist
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import org.springframework.security.authentication.AuthenticationProvider
+import org.springframework.security.authentication.BadCredentialsException
+import org.springframework.security.core.Authentication
+import org.springframework.stereotype.Component
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.concurrent.TimeUnit
+
+/**
+ * Authenticates bearer tokens. Clients poll with the same token many times, so verified tokens are cached
+ * by their SHA-256 digest until they expire, at most for `jwt.verified-token-cache-ttl`, and repeated requests
+ * skip signature verification. Revoked tokens are rejected even when they are cached.
+ */
+@Component
+class JwtAuthenticationProvider(
+    private val jwtTokenVerifier: JwtTokenVerifier,
+    private val accessTokenDenylist: AccessTokenDenylist,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) : AuthenticationProvider {
+
+    private companion object {
+        val sha256: ThreadLocal<MessageDigest> = ThreadLocal.withInitial { MessageDigest.getInstance("SHA-256") }
+    }
+
+    private val properties = applicationProperties.jwt
+
+    private val verifiedTokens: Cache<ByteBuffer, AccessTokenClaims> = Caffeine.newBuilder()
+        .maximumSize(properties.verifiedTokenCacheMaxEntries)
+        .expireAfter(UntilTokenExpiry(properties.verifiedTokenCacheTtl.toNanos()))
+        .recordStats()
+        .build()
+
+    init {
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified.tokens")
+    }
+
+    override fun authenticate(authentication: Authentication): Authentication {
+        val token = authentication.credentials as String
+        return try {
+            JwtAuthenticationToken(token, verify(token))
+        } catch (ex: TokenException) {
+            throw BadCredentialsException(ex.message, ex)
+        }
+    }
+
+    override fun supports(authentication: Class<*>): Boolean =
+        JwtAuthenticationToken::class.java.isAssignableFrom(authentication)
+
+    @Throws(TokenException::class)
+    private fun verify(token: String): AccessTokenClaims {
+        val digest = ByteBuffer.wrap(sha256.get().digest(token.toByteArray(Charsets.US_ASCII)))
+        val claims = verifiedTokens.getIfPresent(digest)?.takeIf { !it.isExpired() }
+            ?: jwtTokenVerifier.verify(token).also { verifiedTokens.put(digest, it) }
+        if (claims.id?.let { accessTokenDenylist.isRevoked(it, claims.expiresAt) } == true) {
+            throw TokenException("Access token is revoked")
+        }
+        return claims
+    }
+
+    private fun AccessTokenClaims.isExpired(): Boolean =
+        TimeUnit.SECONDS.toMillis(expiresAt) <= System.currentTimeMillis()
+
+    private class UntilTokenExpiry(private val maxNanos: Long) : Expiry<ByteBuffer, AccessTokenClaims> {
+        override fun expireAfterCreate(key: ByteBuffer, value: AccessTokenClaims, currentTime: Long): Long {
+            val untilExpiry = TimeUnit.SECONDS.toMillis(value.expiresAt) - System.currentTimeMillis()
+            return minOf(maxNanos, TimeUnit.MILLISECONDS.toNanos(maxOf(untilExpiry, 0)))
+        }
+
+        override fun expireAfterUpdate(
+            key: ByteBuffer,
+            value: AccessTokenClaims,
+            currentTime: Long,
+            currentDuration: Long
+        ): Long = expireAfterCreate(key, value, currentTime)
+
+        override fun expireAfterRead(
+            key: ByteBuffer,
+            value: AccessTokenClaims,
+            currentTime: Long,
+            currentDuration: Long
+        ): Long = currentDuration
+    }
+}
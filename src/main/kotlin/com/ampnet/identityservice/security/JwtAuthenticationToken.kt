@@ -0,0 +1,22 @@
+package com.ampnet.identityservice.security
+
+import org.springframework.security.authentication.AbstractAuthenticationToken
+
+/**
+ * Bearer token from the request. Authenticated once [claims] are verified, the principal is the user address.
+ */
+class JwtAuthenticationToken(private val token: String, val claims: AccessTokenClaims? = null) :
+    AbstractAuthenticationToken(emptyList()) {
+
+    companion object {
+        private const val serialVersionUID: Long = 4120634391583625163L
+    }
+
+    init {
+        isAuthenticated = claims != null
+    }
+
+    override fun getCredentials(): String = token
+
+    override fun getPrincipal(): String? = claims?.address
+}
@@ -0,0 +1,63 @@
+package com.ampnet.identityservice.security
+
+import java.security.PrivateKey
+import java.security.PublicKey
+import java.security.Signature
+import java.security.SignatureException
+import java.time.Instant
+
+/**
+ * Access token key identified by [keyId]. A key with [privateKey] signs tokens from [activeFrom] on, until a key
+ * with a later [activeFrom] takes over. The public key is published and accepted until [retireAt], so it can be
+ * published before it signs anything and stays valid for tokens issued before the next rotation.
+ */
+class JwtKey(
+    val keyId: String,
+    val algorithm: JwtAlgorithm,
+    val publicKey: PublicKey,
+    private val privateKey: PrivateKey?,
+    val activeFrom: Instant = Instant.EPOCH,
+    val retireAt: Instant? = null
+) {
+
+    private companion object {
+        const val ES256_SIGNATURE_LENGTH = 64
+    }
+
+    val jwk: Map<String, String> = JwtKeyUtils.toJwk(publicKey)
+
+    private val signatures = privateKey?.let {
+        ThreadLocal.withInitial { Signature.getInstance(algorithm.jcaName).apply { initSign(it) } }
+    }
+    private val verifiers = ThreadLocal.withInitial {
+        Signature.getInstance(algorithm.jcaName).apply { initVerify(publicKey) }
+    }
+
+    fun isPublished(now: Instant): Boolean = retireAt == null || now.isBefore(retireAt)
+
+    fun canSign(now: Instant): Boolean = privateKey != null && !activeFrom.isAfter(now) && isPublished(now)
+
+    /**
+     * @return signature in JWS format.
+     */
+    fun sign(input: ByteArray): ByteArray {
+        val signature = checkNotNull(signatures) { "Key: $keyId cannot sign tokens" }.get().run {
+            update(input)
+            sign()
+        }
+        return if (algorithm == JwtAlgorithm.ES256) JwtKeyUtils.derToJose(signature) else signature
+    }
+
+    fun verify(input: ByteArray, signature: ByteArray): Boolean {
+        if (algorithm == JwtAlgorithm.ES256 && signature.size != ES256_SIGNATURE_LENGTH) return false
+        val encodedSignature = if (algorithm == JwtAlgorithm.ES256) JwtKeyUtils.joseToDer(signature) else signature
+        return try {
+            verifiers.get().run {
+                update(input)
+                verify(encodedSignature)
+            }
+        } catch (ex: SignatureException) {
+            false
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.config.JwtKeyProperties
+import mu.KLogging
+import org.springframework.stereotype.Service
+import java.time.Instant
+
+/**
+ * All access token keys: the key configured in `jwt.private-key`/`jwt.public-key` (and `jwt.ec-*` for ES256)
+ * and rotated keys from `jwt.keys`. Configured keys without `jwt.key-id` are identified by their RFC 7638
+ * thumbprint.
+ *
+ * Rotation is scheduled by configuration: a new key is added with `active-from` in the future, so it is
+ * published in the JWKS before it signs anything, and the previous key gets `retire-at` after its last token
+ * expires.
+ */
+@Service
+class JwtKeyStore(applicationProperties: ApplicationProperties) {
+
+    companion object : KLogging()
+
+    private val properties = applicationProperties.jwt
+
+    private val defaultKeys: Map<JwtAlgorithm, JwtKey> = listOfNotNull(
+        defaultKey(JwtAlgorithm.RS256, properties.publicKey, properties.privateKey),
+        properties.ecPublicKey.takeIf { it.isNotBlank() }?.let {
+            defaultKey(JwtAlgorithm.ES256, it, properties.ecPrivateKey)
+        }
+    ).associateBy { it.algorithm }
+
+    val keys: List<JwtKey> = defaultKeys.values + properties.keys.map { rotatedKey(it) }
+
+    init {
+        check(defaultKeys.containsKey(properties.algorithm)) { "Missing EC public key for ES256 access tokens" }
+        val duplicates = keys.groupBy { it.keyId }.filterValues { it.size > 1 }.keys
+        check(duplicates.isEmpty()) { "Duplicate JWT key ids: $duplicates" }
+        logger.info { "Loaded JWT keys: ${keys.map { it.keyId }}" }
+    }
+
+    fun signingKey(now: Instant): JwtKey = keys.filter { it.canSign(now) }.maxByOrNull { it.activeFrom }
+        ?: throw IllegalStateException("No active JWT signing key")
+
+    /**
+     * @param keyId from the token header, tokens without it are verified with the configured key.
+     */
+    fun verificationKey(keyId: String?, algorithm: JwtAlgorithm, now: Instant): JwtKey? =
+        if (keyId == null) {
+            defaultKeys[algorithm]
+        } else {
+            keys.find { it.keyId == keyId && it.algorithm == algorithm && it.isPublished(now) }
+        }
+
+    fun publishedKeys(now: Instant): List<JwtKey> = keys.filter { it.isPublished(now) }
+
+    private fun defaultKey(algorithm: JwtAlgorithm, publicPem: String, privatePem: String): JwtKey {
+        val signing = algorithm == properties.algorithm
+        check(!signing || privatePem.isNotBlank()) { "Missing private key for $algorithm access tokens" }
+        val publicKey = JwtKeyUtils.readPublicKey(publicPem, algorithm)
+        val keyId = properties.keyId.takeIf { signing && it.isNotBlank() }
+            ?: JwtKeyUtils.thumbprint(JwtKeyUtils.toJwk(publicKey))
+        val privateKey = if (signing) JwtKeyUtils.readPrivateKey(privatePem, algorithm) else null
+        return JwtKey(keyId, algorithm, publicKey, privateKey)
+    }
+
+    private fun rotatedKey(key: JwtKeyProperties): JwtKey = JwtKey(
+        key.keyId,
+        key.algorithm,
+        JwtKeyUtils.readPublicKey(key.publicKey, key.algorithm),
+        key.privateKey.takeIf { it.isNotBlank() }?.let { JwtKeyUtils.readPrivateKey(it, key.algorithm) },
+        key.activeFrom,
+        key.retireAt
+    )
+}
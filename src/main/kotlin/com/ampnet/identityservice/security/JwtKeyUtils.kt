@@ -0,0 +1,102 @@
+package com.ampnet.identityservice.security
+
+import java.math.BigInteger
+import java.security.KeyFactory
+import java.security.MessageDigest
+import java.security.PrivateKey
+import java.security.PublicKey
+import java.security.interfaces.ECPublicKey
+import java.security.interfaces.RSAPublicKey
+import java.security.spec.PKCS8EncodedKeySpec
+import java.security.spec.X509EncodedKeySpec
+import java.util.Base64
+
+@Suppress("MagicNumber")
+internal object JwtKeyUtils {
+
+    private const val EC_COORDINATE_LENGTH = 32
+    private const val DER_SEQUENCE: Byte = 0x30
+    private const val DER_INTEGER: Byte = 0x02
+    private val pemHeader = "-----(BEGIN|END) [A-Z ]+-----".toRegex()
+    private val whitespace = "\\s".toRegex()
+
+    fun readPrivateKey(pem: String, algorithm: JwtAlgorithm): PrivateKey =
+        KeyFactory.getInstance(algorithm.keyAlgorithm).generatePrivate(PKCS8EncodedKeySpec(decodePem(pem)))
+
+    fun readPublicKey(pem: String, algorithm: JwtAlgorithm): PublicKey =
+        KeyFactory.getInstance(algorithm.keyAlgorithm).generatePublic(X509EncodedKeySpec(decodePem(pem)))
+
+    /**
+     * Public part of the key as JSON Web Key members required by RFC 7517, without `kid`, `use` and `alg`.
+     */
+    fun toJwk(publicKey: PublicKey): Map<String, String> = when (publicKey) {
+        is RSAPublicKey -> mapOf(
+            "kty" to "RSA",
+            "n" to encodeUnsigned(publicKey.modulus, 0),
+            "e" to encodeUnsigned(publicKey.publicExponent, 0)
+        )
+        is ECPublicKey -> mapOf(
+            "kty" to "EC",
+            "crv" to "P-256",
+            "x" to encodeUnsigned(publicKey.w.affineX, EC_COORDINATE_LENGTH),
+            "y" to encodeUnsigned(publicKey.w.affineY, EC_COORDINATE_LENGTH)
+        )
+        else -> throw IllegalArgumentException("Unsupported key type: ${publicKey.algorithm}")
+    }
+
+    /**
+     * JWK thumbprint from RFC 7638: SHA-256 of the required members in lexicographic order.
+     */
+    fun thumbprint(jwk: Map<String, String>): String {
+        val json = jwk.toSortedMap().entries.joinToString(",", "{", "}") { "\"${it.key}\":\"${it.value}\"" }
+        val digest = MessageDigest.getInstance("SHA-256").digest(json.toByteArray(Charsets.UTF_8))
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest)
+    }
+
+    /**
+     * Java produces ECDSA signatures as DER encoded (r, s) sequence, JWS requires r and s as fixed size
+     * big-endian values concatenated together (RFC 7518, section 3.4).
+     */
+    fun derToJose(der: ByteArray): ByteArray {
+        val jose = ByteArray(2 * EC_COORDINATE_LENGTH)
+        var offset = if (der[1].toInt() and 0x80 != 0) 2 + (der[1].toInt() and 0x7F) else 2
+        for (part in 0..1) {
+            val length = der[offset + 1].toInt()
+            var start = offset + 2
+            var valueLength = length
+            while (valueLength > EC_COORDINATE_LENGTH && der[start] == 0.toByte()) {
+                start++
+                valueLength--
+            }
+            val destination = part * EC_COORDINATE_LENGTH + EC_COORDINATE_LENGTH - valueLength
+            System.arraycopy(der, start, jose, destination, valueLength)
+            offset += 2 + length
+        }
+        return jose
+    }
+
+    fun joseToDer(jose: ByteArray): ByteArray {
+        val body = derInteger(jose, 0) + derInteger(jose, EC_COORDINATE_LENGTH)
+        return byteArrayOf(DER_SEQUENCE, body.size.toByte()) + body
+    }
+
+    private fun derInteger(jose: ByteArray, from: Int): ByteArray {
+        val end = from + EC_COORDINATE_LENGTH
+        var start = from
+        while (start < end - 1 && jose[start] == 0.toByte()) start++
+        val value = jose.copyOfRange(start, end)
+        val unsigned = if (value[0] < 0) byteArrayOf(0) + value else value
+        return byteArrayOf(DER_INTEGER, unsigned.size.toByte()) + unsigned
+    }
+
+    private fun encodeUnsigned(value: BigInteger, length: Int): String {
+        val bytes = value.toByteArray().let {
+            if (it.size > 1 && it[0] == 0.toByte()) it.copyOfRange(1, it.size) else it
+        }
+        val padded = if (bytes.size < length) ByteArray(length - bytes.size) + bytes else bytes
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded)
+    }
+
+    private fun decodePem(pem: String): ByteArray =
+        Base64.getDecoder().decode(pem.replace(pemHeader, "").replace(whitespace, ""))
+}
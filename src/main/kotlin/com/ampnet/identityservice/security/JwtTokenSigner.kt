@@ -0,0 +1,52 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.identityservice.service.RandomProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
+import org.springframework.stereotype.Service
+import java.util.Base64
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Mints access tokens with the signing key currently active in [JwtKeyStore]. Keys are parsed once on startup
+ * and every thread keeps its own initialized signature, so issuing a token costs only the signing itself.
+ * The `kid` header identifies the key in the JWKS.
+ */
+@Service
+class JwtTokenSigner(
+    private val jwtKeyStore: JwtKeyStore,
+    private val randomProvider: RandomProvider,
+    private val timeProvider: ZonedDateTimeProvider
+) {
+
+    private companion object {
+        const val MILLIS_IN_SECOND = 1000L
+        val objectMapper = jacksonObjectMapper()
+        val encoder: Base64.Encoder = Base64.getUrlEncoder().withoutPadding()
+    }
+
+    private val encodedHeaders = ConcurrentHashMap<String, String>()
+
+    /**
+     * @param extraClaims added to the token, registered claims and `address` cannot be overridden.
+     */
+    fun encode(address: String, validityInMilliseconds: Long, extraClaims: Map<String, Any> = emptyMap()): String {
+        val issuedAt = timeProvider.getZonedDateTime().toInstant()
+        val key = jwtKeyStore.signingKey(issuedAt)
+        val now = issuedAt.epochSecond
+        val claims = extraClaims + mapOf(
+            "sub" to address,
+            "address" to address,
+            "iat" to now,
+            "exp" to now + validityInMilliseconds / MILLIS_IN_SECOND,
+            "jti" to randomProvider.getId()
+        )
+        val signingInput = encodedHeader(key) + "." + encoder.encodeToString(objectMapper.writeValueAsBytes(claims))
+        return signingInput + "." + encoder.encodeToString(key.sign(signingInput.toByteArray(Charsets.US_ASCII)))
+    }
+
+    private fun encodedHeader(key: JwtKey): String = encodedHeaders.computeIfAbsent(key.keyId) {
+        val header = mapOf("alg" to key.algorithm.name, "typ" to "JWT", "kid" to key.keyId)
+        encoder.encodeToString(objectMapper.writeValueAsBytes(header))
+    }
+}
@@ -0,0 +1,72 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.core.jwt.exception.TokenException
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.fasterxml.jackson.core.JsonProcessingException
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
+import org.springframework.stereotype.Service
+import java.time.Instant
+import java.util.Base64
+
+/**
+ * Verifies access tokens issued by [JwtTokenSigner] with the key from the `kid` header. Tokens without `kid`
+ * were issued before key rotation and are verified with the configured key for their algorithm.
+ */
+@Service
+class JwtTokenVerifier(private val jwtKeyStore: JwtKeyStore, private val timeProvider: ZonedDateTimeProvider) {
+
+    private companion object {
+        const val MILLIS_IN_SECOND = 1000L
+        const val TOKEN_PARTS = 3
+        val objectMapper = jacksonObjectMapper()
+        val decoder: Base64.Decoder = Base64.getUrlDecoder()
+    }
+
+    @Throws(TokenException::class)
+    fun verify(token: String): AccessTokenClaims {
+        val parts = token.split('.')
+        if (parts.size != TOKEN_PARTS) {
+            throw TokenException("Invalid token format")
+        }
+        val now = timeProvider.getZonedDateTime().toInstant()
+        try {
+            verifySignature(parts, now)
+            return readClaims(parts[1], now)
+        } catch (ex: IllegalArgumentException) {
+            throw TokenException("Invalid token encoding: ${ex.message}")
+        } catch (ex: JsonProcessingException) {
+            throw TokenException("Invalid token content: ${ex.message}")
+        }
+    }
+
+    private fun verifySignature(parts: List<String>, now: Instant) {
+        val header = readJson(parts[0])
+        val name = header.path("alg").asText()
+        val key = JwtAlgorithm.values().find { it.name == name }
+            ?.let { jwtKeyStore.verificationKey(header.path("kid").textValue(), it, now) }
+            ?: throw TokenException("Unknown token key: ${header.path("kid").textValue()} for algorithm: $name")
+        if (!key.verify((parts[0] + "." + parts[1]).toByteArray(Charsets.US_ASCII), decoder.decode(parts[2]))) {
+            throw TokenException("Invalid token signature")
+        }
+    }
+
+    private fun readClaims(encodedClaims: String, now: Instant): AccessTokenClaims {
+        val claims = readJson(encodedClaims)
+        val address = claims.path("address").textValue() ?: claims.path("sub").textValue()
+        val expiresAt = claims.path("exp").asLong()
+        if (address == null || expiresAt * MILLIS_IN_SECOND <= now.toEpochMilli()) {
+            throw TokenException("Token is expired or missing address")
+        }
+        val kyc = claims[KycClaims.VERIFIED]?.let {
+            KycClaims(
+                it.asBoolean(),
+                claims.path(KycClaims.DOCUMENT_VALID_UNTIL).textValue(),
+                claims.path(KycClaims.LANGUAGE).textValue()
+            )
+        }
+        return AccessTokenClaims(address, claims.path("iat").asLong(), expiresAt, claims.path("jti").textValue(), kyc)
+    }
+
+    private fun readJson(encoded: String): JsonNode = objectMapper.readTree(decoder.decode(encoded))
+}
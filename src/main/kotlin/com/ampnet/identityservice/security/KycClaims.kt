@@ -0,0 +1,41 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.identityservice.persistence.model.UserClaimsView
+import java.time.LocalDate
+import java.time.format.DateTimeParseException
+
+/**
+ * KYC state of the user at the time the access token was issued, embedded so that other services can
+ * authorize by the token alone instead of asking for the user over gRPC.
+ */
+data class KycClaims(val verified: Boolean, val documentValidUntil: String?, val language: String?) {
+
+    companion object {
+        const val VERIFIED = "kyc"
+        const val DOCUMENT_VALID_UNTIL = "kyc_doc_exp"
+        const val LANGUAGE = "lang"
+
+        /**
+         * User is verified if connected to not deactivated user info with a document that is not expired.
+         * Documents without expiry date are valid, unreadable dates are treated as expired.
+         */
+        fun from(view: UserClaimsView, today: LocalDate): KycClaims {
+            val documentValid = view.documentValidUntil?.let { isNotBefore(it, today) } ?: true
+            val verified = view.userInfoUuid != null && view.deactivated != true && documentValid
+            return KycClaims(verified, view.documentValidUntil, view.language)
+        }
+
+        private fun isNotBefore(date: String, today: LocalDate): Boolean =
+            try {
+                !LocalDate.parse(date).isBefore(today)
+            } catch (ex: DateTimeParseException) {
+                false
+            }
+    }
+
+    fun toMap(): Map<String, Any> = listOfNotNull(
+        VERIFIED to verified,
+        documentValidUntil?.let { DOCUMENT_VALID_UNTIL to it },
+        language?.let { LANGUAGE to it }
+    ).toMap()
+}
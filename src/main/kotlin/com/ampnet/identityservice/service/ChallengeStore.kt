@@ -0,0 +1,10 @@
+package com.ampnet.identityservice.service
+
+interface ChallengeStore {
+    fun put(key: String, payload: String)
+
+    /**
+     * Removes the challenge and returns its payload, so each issued challenge can be verified at most once.
+     */
+    fun take(key: String): String?
+}
@@ -0,0 +1,11 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequest
+import com.ampnet.identityservice.service.pojo.AccessAndRefreshToken
+import com.ampnet.identityservice.service.pojo.BatchLoginResult
+import com.ampnet.identityservice.util.WalletAddress
+
+interface LoginService {
+    fun login(address: WalletAddress): AccessAndRefreshToken
+    fun loginBatch(requests: List<AuthorizationRequest>): List<BatchLoginResult>
+}
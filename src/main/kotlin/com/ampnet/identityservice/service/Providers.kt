@@ -1,8 +1,13 @@
 package com.ampnet.identityservice.service
 
 import io.micrometer.core.instrument.util.NamedThreadFactory
+import mu.KLogging
 import org.springframework.stereotype.Service
+import java.nio.ByteBuffer
+import java.security.NoSuchAlgorithmException
+import java.security.SecureRandom
 import java.time.ZonedDateTime
+import java.util.Base64
 import java.util.UUID
 import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
@@ -15,6 +20,12 @@ interface ZonedDateTimeProvider {
     fun getZonedDateTime(): ZonedDateTime
 }
 
+interface RandomProvider {
+    fun getNonce(): String
+    fun getId(): String
+    fun getToken(length: Int): String
+}
+
 interface FixedScheduler {
     fun scheduleAtFixedRate(command: Runnable, initialDelay: Long, period: Long, unit: TimeUnit)
     fun shutdown()
@@ -34,6 +45,70 @@ class CurrentZonedDateTimeProvider : ZonedDateTimeProvider {
     override fun getZonedDateTime(): ZonedDateTime = ZonedDateTime.now()
 }
 
+/**
+ * Serves random values from per-thread buffers which are refilled in bulk from a non-blocking source
+ * (/dev/urandom where available), so login requests never wait for entropy or contend on a shared generator.
+ */
+@Service
+class BufferedRandomProvider : RandomProvider {
+
+    private companion object : KLogging() {
+        const val BUFFER_SIZE = 4096
+        const val ID_BYTES = 16
+        const val NON_BLOCKING_ALGORITHM = "NativePRNGNonBlocking"
+    }
+
+    private class Buffer(val random: SecureRandom) {
+        val bytes = ByteArray(BUFFER_SIZE)
+        var position = BUFFER_SIZE
+    }
+
+    private val buffers = ThreadLocal.withInitial { Buffer(newSecureRandom()) }
+    private val encoder = Base64.getUrlEncoder().withoutPadding()
+
+    override fun getNonce(): String {
+        val bytes = readBytes(Int.SIZE_BYTES)
+        return (ByteBuffer.wrap(bytes).int and Int.MAX_VALUE).toString()
+    }
+
+    override fun getId(): String = encoder.encodeToString(readBytes(ID_BYTES))
+
+    /**
+     * @return URL-safe Base64 token with the given number of characters.
+     */
+    @Suppress("MagicNumber")
+    override fun getToken(length: Int): String {
+        val encoded = encoder.encodeToString(readBytes((length * 3 + 3) / 4))
+        return if (encoded.length == length) encoded else encoded.substring(0, length)
+    }
+
+    private fun readBytes(size: Int): ByteArray {
+        val buffer = buffers.get()
+        val result = ByteArray(size)
+        var written = 0
+        while (written < size) {
+            if (buffer.position == BUFFER_SIZE) {
+                buffer.random.nextBytes(buffer.bytes)
+                buffer.position = 0
+            }
+            val count = minOf(size - written, BUFFER_SIZE - buffer.position)
+            System.arraycopy(buffer.bytes, buffer.position, result, written, count)
+            buffer.bytes.fill(0, buffer.position, buffer.position + count)
+            buffer.position += count
+            written += count
+        }
+        return result
+    }
+
+    private fun newSecureRandom(): SecureRandom =
+        try {
+            SecureRandom.getInstance(NON_BLOCKING_ALGORITHM)
+        } catch (ex: NoSuchAlgorithmException) {
+            logger.warn { "$NON_BLOCKING_ALGORITHM is not available, using default SecureRandom" }
+            SecureRandom()
+        }
+}
+
 @Service
 class DefaultScheduledExecutorServiceProvider : ScheduledExecutorServiceProvider {
     override fun newSingleThreadScheduledExecutor(threadPrefix: String): FixedScheduler =
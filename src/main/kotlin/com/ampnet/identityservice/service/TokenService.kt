@@ -1,10 +1,19 @@
 package com.ampnet.identityservice.service
 
+import com.ampnet.identityservice.security.AccessTokenClaims
 import com.ampnet.identityservice.service.pojo.AccessAndRefreshToken
 import com.ampnet.identityservice.util.WalletAddress
 
 interface TokenService {
+    /**
+     * Issues tokens on login, the user is created if it does not exist yet.
+     */
     fun generateAccessAndRefreshForUser(address: WalletAddress): AccessAndRefreshToken
     fun generateAccessAndRefreshFromRefreshToken(token: String): AccessAndRefreshToken
     fun deleteRefreshToken(address: WalletAddress)
+
+    /**
+     * Rejects the access token on all nodes until it expires. Tokens without an id can not be revoked.
+     */
+    fun revokeAccessToken(claims: AccessTokenClaims)
 }
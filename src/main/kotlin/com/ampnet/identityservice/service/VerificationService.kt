@@ -7,6 +7,6 @@ import com.ampnet.identityservice.util.WalletAddress
 interface VerificationService {
     fun generatePayload(address: WalletAddress): String
     fun generatePayloadByMessage(): String
-    fun verifyPayload(address: WalletAddress, signedPayload: String, chainId: ChainId?)
+    fun verifyPayload(address: WalletAddress, signedPayload: String, chainId: ChainId?, messageToSign: String? = null)
     fun verifyPayloadByMessage(request: AuthorizationRequestByMessage)
 }
@@ -0,0 +1,119 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.repository.RevokedAccessTokenRepository
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.ampnet.identityservice.util.BloomFilter
+import io.micrometer.core.instrument.MeterRegistry
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Service
+import java.time.Duration
+import java.time.Instant
+import java.time.ZonedDateTime
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * Ids of revoked access tokens which have not expired yet. Revocations are stored in the database and every
+ * node syncs them periodically into memory, so the authentication filter checks a token without any database
+ * access: a Bloom filter rules out almost every valid token and only a hit is confirmed in the exact set of the
+ * bucket for the token expiry. Buckets are dropped once all tokens in them have expired, so the list shrinks
+ * on its own.
+ */
+@Service
+class AccessTokenDenylist(
+    private val revokedAccessTokenRepository: RevokedAccessTokenRepository,
+    private val timeProvider: ZonedDateTimeProvider,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry,
+    scheduledExecutorServiceProvider: ScheduledExecutorServiceProvider
+) : DisposableBean {
+
+    companion object : KLogging() {
+        const val SYNC_NAME = "AccessTokenDenylistSync"
+    }
+
+    private val properties = applicationProperties.accessTokenRevocation
+    private val bucketSeconds = properties.bucketDuration.seconds.coerceAtLeast(1L)
+    private val lock = ReentrantReadWriteLock()
+    private val buckets = ConcurrentHashMap<Long, MutableSet<String>>()
+    private val executorService = scheduledExecutorServiceProvider.newSingleThreadScheduledExecutor(SYNC_NAME)
+
+    @Volatile
+    private var filter = BloomFilter(properties.expectedEntries)
+    private var syncedAt: ZonedDateTime? = null
+
+    init {
+        meterRegistry.gauge("access.token.denylist.size", this) { it.size().toDouble() }
+        val period = properties.syncPeriod.toMillis()
+        executorService.scheduleAtFixedRate({ sync() }, 0L, period, TimeUnit.MILLISECONDS)
+    }
+
+    override fun destroy() {
+        logger.info { "Shutting down access token denylist sync executor service..." }
+        executorService.shutdown()
+    }
+
+    /**
+     * Stores the revocation and applies it on this node immediately, other nodes pick it up on their next sync.
+     */
+    fun revoke(tokenId: String, expiresAt: Long) {
+        val now = timeProvider.getZonedDateTime()
+        if (expiresAt <= now.toEpochSecond()) return
+        val expiresAtTime = ZonedDateTime.ofInstant(Instant.ofEpochSecond(expiresAt), now.zone)
+        revokedAccessTokenRepository.insert(tokenId, expiresAtTime)
+        add(tokenId, expiresAt)
+    }
+
+    fun isRevoked(tokenId: String, expiresAt: Long): Boolean =
+        filter.mightContain(tokenId) && buckets[bucket(expiresAt)]?.contains(tokenId) == true
+
+    fun size(): Int = buckets.values.sumOf { it.size }
+
+    /**
+     * Loads revocations made since the previous sync, with an overlap for transactions committed late, then drops
+     * expired tokens from memory and from the database. Revocation times and the sync window are both measured
+     * on the database clock, so clock skew between nodes cannot hide a revocation; only the window length comes
+     * from the time elapsed on this node.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun sync() {
+        try {
+            val now = timeProvider.getZonedDateTime()
+            val revoked = syncedAt?.let {
+                val windowMillis = Duration.between(it, now).plus(properties.syncOverlap).toMillis()
+                revokedAccessTokenRepository.findRevokedWithin(windowMillis)
+            } ?: revokedAccessTokenRepository.findNotExpired()
+            revoked.forEach { add(it.tokenId, it.expiresAt.toEpochSecond()) }
+            syncedAt = now
+            removeExpired(now.toEpochSecond())
+            val deleted = revokedAccessTokenRepository.deleteExpired()
+            logger.debug { "Synced access token denylist of size: ${size()}, deleted $deleted expired revocations" }
+        } catch (ex: Exception) {
+            logger.warn("Failed to sync access token denylist", ex)
+        }
+    }
+
+    private fun add(tokenId: String, expiresAt: Long) = lock.read {
+        buckets.computeIfAbsent(bucket(expiresAt)) { ConcurrentHashMap.newKeySet() }.add(tokenId)
+        filter.add(tokenId)
+    }
+
+    private fun removeExpired(now: Long) = lock.write {
+        val expired = buckets.keys.filter { (it + 1) * bucketSeconds <= now }
+        if (expired.isNotEmpty()) {
+            expired.forEach { buckets.remove(it) }
+            val remaining = buckets.values.flatten()
+            filter = BloomFilter(maxOf(properties.expectedEntries, 2 * remaining.size)).apply {
+                remaining.forEach { add(it) }
+            }
+        }
+    }
+
+    private fun bucket(expiresAt: Long): Long = expiresAt / bucketSeconds
+}
@@ -0,0 +1,165 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.blockchain.BlockchainService
+import com.ampnet.identityservice.blockchain.properties.Chain
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.util.ChainId
+import com.ampnet.identityservice.util.ContractAddress
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import io.micrometer.core.instrument.util.NamedThreadFactory
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Service
+import org.web3j.utils.Numeric
+import java.time.Duration
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Caches blockchain lookups needed for contract wallet (EIP-1271) logins. Each lookup is an RPC round trip,
+ * so both the result of `isValidSignature` and whether an address has code deployed are kept for a while.
+ * Negative results are cached only briefly, because a failed RPC call is also reported as an invalid signature.
+ */
+@Service
+class ContractWalletService(
+    private val blockchainService: BlockchainService,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) : DisposableBean {
+
+    companion object : KLogging() {
+        private const val PROBE_NAME = "ContractWalletProbe"
+    }
+
+    private data class SignatureKey(
+        val chainId: ChainId,
+        val address: ContractAddress,
+        val messageHash: String,
+        val signature: String
+    )
+
+    private data class CodeKey(val chainId: ChainId, val address: ContractAddress)
+
+    private val properties = applicationProperties.contractWallet
+
+    private val signatures: Cache<SignatureKey, Boolean> = Caffeine.newBuilder()
+        .maximumSize(properties.cacheMaxEntries)
+        .expireAfter(ValidityExpiry<SignatureKey>(properties.validSignatureTtl, properties.negativeTtl))
+        .recordStats()
+        .build()
+
+    private val contracts: Cache<CodeKey, Boolean> = Caffeine.newBuilder()
+        .maximumSize(properties.cacheMaxEntries)
+        .expireAfter(ValidityExpiry<CodeKey>(properties.codeTtl, properties.negativeTtl))
+        .recordStats()
+        .build()
+
+    private val probeChains = properties.probeChains.map { ChainId(it) }.filter { Chain.fromId(it) != null }
+
+    private val probeExecutor = ThreadPoolExecutor(
+        properties.probeThreads,
+        properties.probeThreads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        ArrayBlockingQueue(properties.probeQueueCapacity),
+        NamedThreadFactory(PROBE_NAME)
+    ) { _, _ -> throw RejectedExecutionException("Contract wallet probe queue is full") }
+
+    init {
+        CaffeineCacheMetrics.monitor(meterRegistry, signatures, "eip1271.signatures")
+        CaffeineCacheMetrics.monitor(meterRegistry, contracts, "eip1271.contracts")
+    }
+
+    fun isSignatureValid(chainId: ChainId, address: ContractAddress, messageHash: ByteArray, signature: String) =
+        signatures.get(SignatureKey(chainId, address, Numeric.toHexString(messageHash), signature)) {
+            blockchainService.isSignatureValid(
+                chainId, address, messageHash, Numeric.hexStringToByteArray(signature)
+            )
+        } ?: false
+
+    /**
+     * Checks the signature on all [ContractWalletProperties.probeChains] at once, used when the client did not send
+     * the chain id. Only chains listed there are probed, so a contract deployed at the same address on a test or
+     * local chain cannot log in. Each chain gets at most [ContractWalletProperties.probeTimeout]; the first chain
+     * where the address is a contract that accepts the signature wins and the remaining calls are cancelled.
+     * Probes run on a bounded executor, once its queue is full the login is rejected.
+     *
+     * @return chain on which the contract wallet accepted the signature, null if there is none.
+     * @throws RejectedExecutionException if the probe executor is saturated.
+     */
+    @Throws(RejectedExecutionException::class)
+    fun findChainWithValidSignature(address: ContractAddress, messageHash: ByteArray, signature: String): ChainId? {
+        val completionService = ExecutorCompletionService<ChainId?>(probeExecutor)
+        val futures = ArrayList<Future<ChainId?>>(probeChains.size)
+        val deadline = System.nanoTime() + properties.probeTimeout.toNanos()
+        try {
+            probeChains.forEach { chainId ->
+                futures += completionService.submit {
+                    chainId.takeIf { isContract(it, address) && isSignatureValid(it, address, messageHash, signature) }
+                }
+            }
+            var result: ChainId? = null
+            var remaining = futures.size
+            while (result == null && remaining-- > 0) {
+                val future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) ?: break
+                result = getProbeResult(future)
+            }
+            logger.debug { "Contract: $address accepted the signature on chain: $result" }
+            return result
+        } finally {
+            futures.forEach { it.cancel(true) }
+        }
+    }
+
+    /**
+     * @return true if the address has code deployed on the given chain. Unsupported chains have no contracts
+     * and failed RPC calls are not cached.
+     */
+    fun isContract(chainId: ChainId, address: ContractAddress): Boolean {
+        val key = CodeKey(chainId, address)
+        return Chain.fromId(chainId) != null && (contracts.getIfPresent(key) ?: loadIsContract(key))
+    }
+
+    override fun destroy() {
+        probeExecutor.shutdownNow()
+    }
+
+    private fun getProbeResult(future: Future<ChainId?>): ChainId? =
+        try {
+            future.get()
+        } catch (ex: ExecutionException) {
+            logger.warn { "Failed to probe chain for contract wallet: ${ex.cause?.message}" }
+            null
+        }
+
+    private fun loadIsContract(key: CodeKey): Boolean {
+        val code = blockchainService.getCode(key.chainId, key.address) ?: return false
+        val isContract = Numeric.cleanHexPrefix(code).any { it != '0' }
+        logger.debug { "Address: ${key.address} on chain: ${key.chainId} is contract: $isContract" }
+        contracts.put(key, isContract)
+        return isContract
+    }
+
+    private class ValidityExpiry<K>(valid: Duration, invalid: Duration) : Expiry<K, Boolean> {
+        private val validNanos = valid.toNanos()
+        private val invalidNanos = invalid.toNanos()
+
+        override fun expireAfterCreate(key: K, value: Boolean, currentTime: Long): Long =
+            if (value) validNanos else invalidNanos
+
+        override fun expireAfterUpdate(key: K, value: Boolean, currentTime: Long, currentDuration: Long): Long =
+            expireAfterCreate(key, value, currentTime)
+
+        override fun expireAfterRead(key: K, value: Boolean, currentTime: Long, currentDuration: Long): Long =
+            currentDuration
+    }
+}
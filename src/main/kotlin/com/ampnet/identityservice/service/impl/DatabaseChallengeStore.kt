@@ -0,0 +1,62 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.repository.LoginChallengeRepository
+import com.ampnet.identityservice.service.ChallengeStore
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.stereotype.Service
+import org.springframework.transaction.annotation.Transactional
+import java.util.concurrent.TimeUnit
+
+/**
+ * Challenge store shared by all service replicas through the `login_challenge` table, so a payload issued by one
+ * node can be verified on any other. A login takes the challenge with a single `DELETE ... RETURNING`, which reads
+ * the latest challenge for the key, whichever node issued it, and consumes it atomically in one round trip.
+ */
+@Service
+@ConditionalOnProperty(prefix = "com.ampnet.identityservice.challenge", name = ["store"], havingValue = "database")
+class DatabaseChallengeStore(
+    private val loginChallengeRepository: LoginChallengeRepository,
+    private val timeProvider: ZonedDateTimeProvider,
+    private val applicationProperties: ApplicationProperties,
+    scheduledExecutorServiceProvider: ScheduledExecutorServiceProvider
+) : ChallengeStore, DisposableBean {
+
+    companion object : KLogging() {
+        const val CLEANUP_NAME = "ChallengeCleanup"
+    }
+
+    private val executorService = scheduledExecutorServiceProvider.newSingleThreadScheduledExecutor(CLEANUP_NAME)
+
+    init {
+        val period = applicationProperties.challenge.cleanupPeriod.toMillis()
+        executorService.scheduleAtFixedRate({ deleteExpired() }, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    override fun destroy() {
+        logger.info { "Shutting down challenge cleanup executor service..." }
+        executorService.shutdown()
+    }
+
+    override fun put(key: String, payload: String) {
+        val expiresAt = timeProvider.getZonedDateTime().plus(applicationProperties.challenge.ttl)
+        loginChallengeRepository.upsert(key, payload, expiresAt)
+    }
+
+    @Transactional
+    override fun take(key: String): String? = loginChallengeRepository.take(key, timeProvider.getZonedDateTime())
+
+    @Suppress("TooGenericExceptionCaught")
+    private fun deleteExpired() {
+        try {
+            val deleted = loginChallengeRepository.deleteExpired(timeProvider.getZonedDateTime())
+            logger.debug { "Deleted $deleted expired login challenges" }
+        } catch (ex: Exception) {
+            logger.warn("Failed to delete expired login challenges", ex)
+        }
+    }
+}
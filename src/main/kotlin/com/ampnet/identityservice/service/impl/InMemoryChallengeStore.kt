@@ -0,0 +1,51 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.ChallengeStore
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.RemovalCause
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
+import org.springframework.stereotype.Service
+import java.util.concurrent.TimeUnit
+
+@Service
+@ConditionalOnProperty(
+    prefix = "com.ampnet.identityservice.challenge", name = ["store"], havingValue = "memory", matchIfMissing = true
+)
+class InMemoryChallengeStore(
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) : ChallengeStore {
+
+    private val evictions = listOf(RemovalCause.EXPIRED, RemovalCause.SIZE).associateWith {
+        Counter.builder("auth.challenge.evictions")
+            .description("Login challenges removed before they were used")
+            .tag("cause", it.name.lowercase())
+            .register(meterRegistry)
+    }
+
+    private val challenges: Cache<String, String> = Caffeine.newBuilder()
+        .maximumSize(applicationProperties.challenge.maxEntries)
+        .expireAfterWrite(applicationProperties.challenge.ttl.toMillis(), TimeUnit.MILLISECONDS)
+        .executor(Runnable::run)
+        .removalListener<String, String> { _, _, cause -> evictions[cause]?.increment() }
+        .build()
+
+    init {
+        Gauge.builder("auth.challenge.size", challenges) { it.estimatedSize().toDouble() }
+            .description("Number of issued login challenges waiting to be signed")
+            .register(meterRegistry)
+    }
+
+    override fun put(key: String, payload: String) = challenges.put(key, payload)
+
+    /**
+     * Removes the challenge atomically, so the same signed payload can be exchanged for a token only once even
+     * when concurrent requests verify it at the same time.
+     */
+    override fun take(key: String): String? = challenges.asMap().remove(key)
+}
@@ -0,0 +1,97 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequest
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.InternalException
+import com.ampnet.identityservice.exception.InvalidRequestException
+import com.ampnet.identityservice.exception.ResourceNotFoundException
+import com.ampnet.identityservice.service.LoginService
+import com.ampnet.identityservice.service.TokenService
+import com.ampnet.identityservice.service.VerificationService
+import com.ampnet.identityservice.service.pojo.AccessAndRefreshToken
+import com.ampnet.identityservice.service.pojo.BatchLoginResult
+import com.ampnet.identityservice.util.ChainId
+import com.ampnet.identityservice.util.WalletAddress
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Service
+import org.springframework.transaction.support.TransactionTemplate
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RejectedExecutionException
+
+@Service
+class LoginServiceImpl(
+    private val verificationService: VerificationService,
+    private val tokenService: TokenService,
+    private val transactionTemplate: TransactionTemplate,
+    private val applicationProperties: ApplicationProperties
+) : LoginService, DisposableBean {
+
+    companion object : KLogging()
+
+    private val verificationPool = ForkJoinPool(applicationProperties.auth.batchParallelism)
+
+    override fun login(address: WalletAddress): AccessAndRefreshToken {
+        val accessAndRefreshToken = tokenService.generateAccessAndRefreshForUser(address)
+        logger.debug { "User address: $address successfully authorized." }
+        return accessAndRefreshToken
+    }
+
+    /**
+     * Signatures are verified in parallel, then tokens and users for all verified addresses are written
+     * in a single transaction. Items which failed verification are returned with their error code, so an
+     * unexpected failure for one address does not fail the rest of the batch. A failed item never gets a token,
+     * even if another item for the same address was verified.
+     */
+    @Throws(InvalidRequestException::class)
+    override fun loginBatch(requests: List<AuthorizationRequest>): List<BatchLoginResult> {
+        val maxBatchSize = applicationProperties.auth.maxBatchSize
+        if (requests.size > maxBatchSize) {
+            throw InvalidRequestException(
+                ErrorCode.AUTH_BATCH_TOO_LARGE, "Batch of ${requests.size} addresses exceeds limit of $maxBatchSize"
+            )
+        }
+        val results = requests
+            .map { request -> verificationPool.submit(Callable { verify(request) }) }
+            .map { it.join() }
+        val verified = results.filter { it.errorCode == null }.map { it.address }.distinct()
+        val tokens = transactionTemplate.execute {
+            verified.associateWith { tokenService.generateAccessAndRefreshForUser(it) }
+        }.orEmpty()
+        logger.debug { "Authorized ${verified.size} of ${requests.size} addresses in batch" }
+        return results.map { result ->
+            tokens[result.address]?.takeIf { result.errorCode == null }?.let { result.copy(token = it) } ?: result
+        }
+    }
+
+    override fun destroy() {
+        verificationPool.shutdown()
+    }
+
+    @Suppress("TooGenericExceptionCaught")
+    private fun verify(request: AuthorizationRequest): BatchLoginResult {
+        val address = WalletAddress(request.address)
+        return try {
+            verificationService.verifyPayload(
+                address = address,
+                signedPayload = request.signedPayload,
+                chainId = request.chainId?.let { ChainId(it) },
+                messageToSign = request.messageToSign
+            )
+            BatchLoginResult(address)
+        } catch (ex: InvalidRequestException) {
+            BatchLoginResult(address, errorCode = ex.errorCode, message = ex.message)
+        } catch (ex: ResourceNotFoundException) {
+            BatchLoginResult(address, errorCode = ex.errorCode, message = ex.message)
+        } catch (ex: InternalException) {
+            BatchLoginResult(address, errorCode = ex.errorCode, message = ex.message)
+        } catch (ex: RejectedExecutionException) {
+            BatchLoginResult(address, errorCode = ErrorCode.AUTH_BUSY, message = ex.message)
+        } catch (ex: RuntimeException) {
+            logger.warn(ex) { "Failed to verify signed payload for address: $address" }
+            BatchLoginResult(address, errorCode = ErrorCode.AUTH_VERIFICATION_FAILED, message = ex.message)
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.repository.RefreshTokenRepository
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Timer
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.stereotype.Service
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Periodically deletes refresh tokens older than their validity. Tokens are deleted in batches of
+ * [RefreshTokenPurgeProperties.batchSize] rows, each in its own short transaction, so a large backlog never
+ * holds locks for long. A run stops after [RefreshTokenPurgeProperties.maxBatchesPerRun] batches and the
+ * remainder is picked up by the next run.
+ */
+@Service
+class RefreshTokenPurger(
+    private val refreshTokenRepository: RefreshTokenRepository,
+    private val timeProvider: ZonedDateTimeProvider,
+    private val applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry,
+    scheduledExecutorServiceProvider: ScheduledExecutorServiceProvider
+) : DisposableBean {
+
+    companion object : KLogging() {
+        const val PURGE_NAME = "RefreshTokenPurge"
+    }
+
+    private val properties = applicationProperties.refreshTokenPurge
+    private val executorService = scheduledExecutorServiceProvider.newSingleThreadScheduledExecutor(PURGE_NAME)
+    private val deletedCounter = Counter.builder("refresh.token.purge.deleted")
+        .description("Expired refresh tokens deleted by the background purge")
+        .register(meterRegistry)
+    private val failedCounter = Counter.builder("refresh.token.purge.failed")
+        .description("Failed background purge runs")
+        .register(meterRegistry)
+    private val runTimer = Timer.builder("refresh.token.purge").register(meterRegistry)
+    private val lastDeleted = AtomicLong()
+
+    init {
+        meterRegistry.gauge("refresh.token.purge.last.deleted", lastDeleted)
+        if (properties.enabled) {
+            val period = properties.period.toMillis()
+            executorService.scheduleAtFixedRate({ purge() }, period, period, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    override fun destroy() {
+        logger.info { "Shutting down refresh token purge executor service..." }
+        executorService.shutdown()
+    }
+
+    /**
+     * @return number of deleted refresh tokens.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun purge(): Long {
+        var deleted = 0L
+        try {
+            runTimer.record(Runnable { deleted = deleteExpiredBatches() })
+            logger.debug { "Purged $deleted expired refresh tokens" }
+        } catch (ex: Exception) {
+            failedCounter.increment()
+            logger.warn("Failed to purge expired refresh tokens", ex)
+        }
+        lastDeleted.set(deleted)
+        return deleted
+    }
+
+    private fun deleteExpiredBatches(): Long {
+        val createdBefore = timeProvider.getZonedDateTime()
+            .minusMinutes(applicationProperties.jwt.refreshTokenValidityInMinutes)
+        var deleted = 0L
+        var batches = 0
+        do {
+            val batch = refreshTokenRepository.deleteCreatedBefore(createdBefore, properties.batchSize)
+            deletedCounter.increment(batch.toDouble())
+            deleted += batch
+            batches++
+        } while (batch == properties.batchSize && batches < properties.maxBatchesPerRun)
+        return deleted
+    }
+}
@@ -0,0 +1,88 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.RefreshToken
+import com.ampnet.identityservice.persistence.repository.RefreshTokenRepository
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import org.springframework.stereotype.Service
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.time.ZonedDateTime
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Refresh tokens are stored only as SHA-256 digests and looked up by the unique digest index. Found tokens are
+ * kept in a bounded cache keyed by the digest, with an index from user address to the cached digest, so saving,
+ * replacing or deleting tokens of a user on this instance evicts them here. Entries expire after the short
+ * [JwtProperties.refreshTokenCacheTtl], which bounds how long a token deleted by another instance is still
+ * accepted by this one.
+ */
+@Service
+class RefreshTokenStore(
+    private val refreshTokenRepository: RefreshTokenRepository,
+    applicationProperties: ApplicationProperties,
+    meterRegistry: MeterRegistry
+) {
+
+    companion object {
+        private val sha256 = ThreadLocal.withInitial { MessageDigest.getInstance("SHA-256") }
+
+        fun hash(token: String): ByteArray = sha256.get().digest(token.toByteArray(Charsets.US_ASCII))
+    }
+
+    private val digestsByAddress = ConcurrentHashMap<String, ByteBuffer>()
+
+    private val tokens: Cache<ByteBuffer, RefreshToken> = Caffeine.newBuilder()
+        .maximumSize(applicationProperties.jwt.refreshTokenCacheMaxEntries)
+        .expireAfterWrite(applicationProperties.jwt.refreshTokenCacheTtl)
+        .removalListener<ByteBuffer, RefreshToken> { digest, refreshToken, _ ->
+            if (digest != null && refreshToken != null) {
+                digestsByAddress.remove(refreshToken.userAddress, digest)
+            }
+        }
+        .recordStats()
+        .build()
+
+    init {
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "refresh.tokens")
+    }
+
+    fun findByToken(token: String): RefreshToken? {
+        val digest = ByteBuffer.wrap(hash(token))
+        return tokens.getIfPresent(digest)
+            ?: refreshTokenRepository.findByTokenHash(digest.array())?.also {
+                digestsByAddress.put(it.userAddress, digest)?.let { previous -> tokens.invalidate(previous) }
+                tokens.put(digest, it)
+            }
+    }
+
+    fun save(address: String, token: String, createdAt: ZonedDateTime): RefreshToken {
+        invalidate(address)
+        return refreshTokenRepository.save(RefreshToken(0, address, hash(token), createdAt))
+    }
+
+    /**
+     * @return true if the user did not exist and was created together with the token.
+     */
+    fun replaceForUser(address: String, token: String, createdAt: ZonedDateTime): Boolean {
+        invalidate(address)
+        return refreshTokenRepository.replaceForUser(address, hash(token), createdAt)
+    }
+
+    fun delete(refreshToken: RefreshToken) {
+        tokens.invalidate(ByteBuffer.wrap(refreshToken.tokenHash))
+        refreshTokenRepository.delete(refreshToken)
+    }
+
+    fun deleteByUserAddress(address: String) {
+        invalidate(address)
+        refreshTokenRepository.deleteByUserAddress(address)
+    }
+
+    private fun invalidate(address: String) {
+        digestsByAddress.remove(address)?.let { tokens.invalidate(it) }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.ResourceNotFoundException
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.ampnet.identityservice.util.WalletAddress
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import org.springframework.stereotype.Service
+import org.web3j.utils.Numeric
+import java.security.MessageDigest
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * Issues login challenges which carry their own expiry and an HMAC tag derived from the configured secret, so they
+ * can be verified without any server-side state. The tag of each successfully verified challenge is kept in
+ * [UsedNonceFilter] until the challenge expires to prevent replays on this node.
+ */
+@Service
+class SignedChallengeService(
+    private val applicationProperties: ApplicationProperties,
+    private val timeProvider: ZonedDateTimeProvider,
+    meterRegistry: MeterRegistry
+) {
+
+    private companion object {
+        const val ALGORITHM = "HmacSHA256"
+        const val TAG_LENGTH = 16
+        const val EXPIRES_PREFIX = "\nExpires: "
+        const val TAG_PREFIX = "\nTag: "
+    }
+
+    private val usedNonces = UsedNonceFilter(applicationProperties.challenge.ttl.seconds.coerceAtLeast(1L))
+    private val mac = ThreadLocal.withInitial {
+        Mac.getInstance(ALGORITHM).apply {
+            init(SecretKeySpec(applicationProperties.challenge.secret.toByteArray(), ALGORITHM))
+        }
+    }
+
+    init {
+        if (applicationProperties.challenge.signed) {
+            check(applicationProperties.challenge.secret.isNotBlank()) {
+                "Signed login challenges require com.ampnet.identityservice.challenge.secret"
+            }
+            Gauge.builder("auth.challenge.used", usedNonces) { it.size().toDouble() }
+                .description("Number of used signed login challenges kept for replay protection")
+                .register(meterRegistry)
+        }
+    }
+
+    fun sign(body: String): String {
+        val expiresAt = timeProvider.getZonedDateTime().plus(applicationProperties.challenge.ttl).toEpochSecond()
+        val unsigned = "$body$EXPIRES_PREFIX$expiresAt"
+        return "$unsigned$TAG_PREFIX${tag(unsigned)}"
+    }
+
+    /**
+     * Checks that the message was issued by this service, has not expired and, for messages bound to an address,
+     * that it was issued for the given address.
+     */
+    @Suppress("ThrowsCount")
+    @Throws(ResourceNotFoundException::class)
+    fun validate(message: String, address: WalletAddress?) {
+        val signed = parse(message)
+        if (signed == null || !MessageDigest.isEqual(signed.tag.toByteArray(), tag(signed.unsigned).toByteArray())) {
+            throw ResourceNotFoundException(ErrorCode.AUTH_PAYLOAD_MISSING, "Payload: $message is not issued by us.")
+        }
+        if (signed.expiresAt <= timeProvider.getZonedDateTime().toEpochSecond()) {
+            throw ResourceNotFoundException(ErrorCode.AUTH_PAYLOAD_MISSING, "Payload: $message has expired.")
+        }
+        if (address != null && !signed.unsigned.contains("address: ${address.value}\n")) {
+            throw ResourceNotFoundException(
+                ErrorCode.AUTH_PAYLOAD_MISSING, "Payload: $message is not issued for address: $address."
+            )
+        }
+    }
+
+    @Throws(ResourceNotFoundException::class)
+    fun markUsed(message: String) {
+        val signed = parse(message)
+            ?: throw ResourceNotFoundException(ErrorCode.AUTH_PAYLOAD_MISSING, "Payload: $message is not issued by us.")
+        val now = timeProvider.getZonedDateTime().toEpochSecond()
+        if (!usedNonces.markUsed(signed.tag, signed.expiresAt, now)) {
+            throw ResourceNotFoundException(ErrorCode.AUTH_PAYLOAD_MISSING, "Payload: $message is already used.")
+        }
+    }
+
+    private fun tag(unsigned: String): String =
+        Numeric.toHexStringNoPrefix(mac.get().doFinal(unsigned.toByteArray()).copyOf(TAG_LENGTH))
+
+    private fun parse(message: String): SignedMessage? {
+        val unsigned = message.substringBeforeLast(TAG_PREFIX, "")
+        val expiresAt = unsigned.substringAfterLast(EXPIRES_PREFIX, "").toLongOrNull()
+        if (unsigned.isEmpty() || expiresAt == null) return null
+        return SignedMessage(unsigned, expiresAt, message.substringAfterLast(TAG_PREFIX))
+    }
+
+    private data class SignedMessage(val unsigned: String, val expiresAt: Long, val tag: String)
+}
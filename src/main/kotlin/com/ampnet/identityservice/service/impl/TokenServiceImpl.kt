@@ -1,88 +1,101 @@
 package com.ampnet.identityservice.service.impl
 
-import com.ampnet.core.jwt.JwtTokenUtils
-import com.ampnet.core.jwt.exception.KeyException
-import com.ampnet.core.jwt.exception.TokenException
 import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.config.AuthExecutorConfig
 import com.ampnet.identityservice.exception.ErrorCode
 import com.ampnet.identityservice.exception.InvalidRequestException
-import com.ampnet.identityservice.persistence.model.RefreshToken
-import com.ampnet.identityservice.persistence.repository.RefreshTokenRepository
+import com.ampnet.identityservice.persistence.repository.UserRepository
+import com.ampnet.identityservice.security.AccessTokenClaims
+import com.ampnet.identityservice.security.JwtTokenSigner
+import com.ampnet.identityservice.security.KycClaims
+import com.ampnet.identityservice.service.RandomProvider
 import com.ampnet.identityservice.service.TokenService
 import com.ampnet.identityservice.service.ZonedDateTimeProvider
 import com.ampnet.identityservice.service.pojo.AccessAndRefreshToken
 import com.ampnet.identityservice.util.WalletAddress
+import com.ampnet.identityservice.util.runAndWait
+import mu.KLogging
+import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
-import java.security.SecureRandom
+import java.util.concurrent.ExecutorService
 
 @Service
 class TokenServiceImpl(
     private val zonedDateTimeProvider: ZonedDateTimeProvider,
     private val applicationProperties: ApplicationProperties,
-    private val refreshTokenRepository: RefreshTokenRepository
+    private val refreshTokenStore: RefreshTokenStore,
+    private val randomProvider: RandomProvider,
+    private val jwtTokenSigner: JwtTokenSigner,
+    private val userRepository: UserRepository,
+    private val accessTokenDenylist: AccessTokenDenylist,
+    @Qualifier(AuthExecutorConfig.AUTH_EXECUTOR) private val authExecutor: ExecutorService
 ) : TokenService {
 
-    private companion object {
-        const val REFRESH_TOKEN_LENGTH = 128
+    companion object : KLogging() {
+        private const val REFRESH_TOKEN_LENGTH = 128
     }
 
-    private val charPool: List<Char> = ('a'..'z') + ('A'..'Z') + ('0'..'9') + listOf('-', '_', '+')
-    private val secureRandom = SecureRandom()
-
-    @Transactional
-    @Throws(KeyException::class, TokenException::class)
+    /**
+     * Creates the user if missing and replaces the refresh token of the user within a single statement.
+     */
     override fun generateAccessAndRefreshForUser(address: WalletAddress): AccessAndRefreshToken {
-        deleteRefreshToken(address)
         val token = getRandomToken()
-        val refreshToken = refreshTokenRepository.save(
-            RefreshToken(0, address.value, token, zonedDateTimeProvider.getZonedDateTime())
-        )
-        val accessToken = JwtTokenUtils.encodeToken(
-            address.value,
-            applicationProperties.jwt.privateKey,
-            applicationProperties.jwt.accessTokenValidityInMilliseconds()
-        )
+        if (refreshTokenStore.replaceForUser(address.value, token, zonedDateTimeProvider.getZonedDateTime())) {
+            logger.info { "User is created for address: $address" }
+        }
+        val accessToken = encodeAccessToken(address.value)
         return AccessAndRefreshToken(
             accessToken,
             applicationProperties.jwt.accessTokenValidityInMilliseconds(),
-            refreshToken.token,
+            token,
             applicationProperties.jwt.refreshTokenValidityInMilliseconds()
         )
     }
 
     @Suppress("MagicNumber")
-    @Throws(InvalidRequestException::class, KeyException::class, TokenException::class)
+    @Throws(InvalidRequestException::class)
     override fun generateAccessAndRefreshFromRefreshToken(token: String): AccessAndRefreshToken {
-        val refreshToken = refreshTokenRepository.findByToken(token)
+        val refreshToken = refreshTokenStore.findByToken(token)
             ?: throw InvalidRequestException(ErrorCode.AUTH_INVALID_REFRESH_TOKEN, "Non existing refresh token")
         val expiration = refreshToken.createdAt
             .plusMinutes(applicationProperties.jwt.refreshTokenValidityInMinutes)
         val refreshTokenExpiresIn: Long =
             expiration.toEpochSecond() - zonedDateTimeProvider.getZonedDateTime().toEpochSecond()
         if (refreshTokenExpiresIn <= 0) {
-            refreshTokenRepository.delete(refreshToken)
+            refreshTokenStore.delete(refreshToken)
             throw InvalidRequestException(ErrorCode.AUTH_INVALID_REFRESH_TOKEN, "Refresh token expired")
         }
-        val accessToken = JwtTokenUtils.encodeToken(
-            refreshToken.userAddress,
-            applicationProperties.jwt.privateKey,
-            applicationProperties.jwt.accessTokenValidityInMilliseconds()
-        )
+        val accessToken = encodeAccessToken(refreshToken.userAddress)
         return AccessAndRefreshToken(
             accessToken,
             applicationProperties.jwt.accessTokenValidityInMilliseconds(),
-            refreshToken.token,
+            token,
             refreshTokenExpiresIn * 1000
         )
     }
 
     @Transactional
     override fun deleteRefreshToken(address: WalletAddress) =
-        refreshTokenRepository.deleteByUserAddress(address.value)
+        refreshTokenStore.deleteByUserAddress(address.value)
+
+    override fun revokeAccessToken(claims: AccessTokenClaims) {
+        val tokenId = claims.id ?: return
+        accessTokenDenylist.revoke(tokenId, claims.expiresAt)
+        logger.debug { "Revoked access token: $tokenId for address: ${claims.address}" }
+    }
+
+    private fun encodeAccessToken(address: String): String {
+        val claims = if (applicationProperties.jwt.kycClaims) {
+            userRepository.findClaimsView(address)
+                ?.let { KycClaims.from(it, zonedDateTimeProvider.getZonedDateTime().toLocalDate()).toMap() }
+                .orEmpty()
+        } else {
+            emptyMap()
+        }
+        val validity = applicationProperties.jwt.accessTokenValidityInMilliseconds()
+        return authExecutor.runAndWait { jwtTokenSigner.encode(address, validity, claims) }
+    }
 
-    private fun getRandomToken(): String = (1..REFRESH_TOKEN_LENGTH)
-        .map { secureRandom.nextInt(charPool.size) }
-        .map(charPool::get)
-        .joinToString("")
+    internal fun getRandomToken(): String = randomProvider.getToken(REFRESH_TOKEN_LENGTH)
 }
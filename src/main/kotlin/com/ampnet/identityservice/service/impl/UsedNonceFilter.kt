@@ -0,0 +1,25 @@
+package com.ampnet.identityservice.service.impl
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Remembers nonces which were already used until they expire. Nonces are grouped into buckets by their expiry time,
+ * so whole buckets are dropped once every nonce in them has expired, and the filter never holds more than the logins
+ * made during the last two bucket widths.
+ */
+internal class UsedNonceFilter(private val bucketWidthInSeconds: Long) {
+
+    private val buckets = ConcurrentHashMap<Long, MutableSet<String>>()
+
+    /**
+     * @return true if the nonce was not used before and is now marked as used.
+     */
+    fun markUsed(nonce: String, expiresAt: Long, now: Long): Boolean {
+        val currentBucket = now / bucketWidthInSeconds
+        buckets.keys.removeIf { it < currentBucket }
+        return buckets.computeIfAbsent(expiresAt / bucketWidthInSeconds) { ConcurrentHashMap.newKeySet() }
+            .add(nonce)
+    }
+
+    fun size(): Int = buckets.values.sumOf { it.size }
+}
@@ -0,0 +1,61 @@
+package com.ampnet.identityservice.service.impl
+
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.repository.UserChangeRepository
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.pojo.UserChangedEvent
+import mu.KLogging
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.context.event.EventListener
+import org.springframework.stereotype.Service
+import java.util.concurrent.TimeUnit
+
+/**
+ * Records every [UserChangedEvent] in the `user_change` table, which is the source of the gRPC WatchUsers feed.
+ * The listener runs synchronously in the transaction which changed the user, so a change is recorded exactly
+ * when the change itself commits. Changes older than [UserChangeProperties.retention] are purged periodically,
+ * both the creation time and the retention are measured by the database clock.
+ */
+@Service
+class UserChangeOutbox(
+    private val userChangeRepository: UserChangeRepository,
+    applicationProperties: ApplicationProperties,
+    scheduledExecutorServiceProvider: ScheduledExecutorServiceProvider
+) : DisposableBean {
+
+    companion object : KLogging() {
+        const val PURGE_NAME = "UserChangePurge"
+    }
+
+    private val properties = applicationProperties.userChange
+    private val executorService = scheduledExecutorServiceProvider.newSingleThreadScheduledExecutor(PURGE_NAME)
+
+    init {
+        val period = properties.purgePeriod.toMillis()
+        executorService.scheduleAtFixedRate({ purge() }, period, period, TimeUnit.MILLISECONDS)
+    }
+
+    override fun destroy() {
+        logger.info { "Shutting down user change purge executor service..." }
+        executorService.shutdown()
+    }
+
+    @EventListener
+    fun onUserChanged(event: UserChangedEvent) {
+        userChangeRepository.insert(event.address, event.type.name)
+    }
+
+    /**
+     * @return number of deleted changes.
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun purge(): Int =
+        try {
+            userChangeRepository.deleteOlderThan(properties.retention.toMillis()).also {
+                logger.debug { "Purged $it user changes older than: ${properties.retention}" }
+            }
+        } catch (ex: Exception) {
+            logger.warn("Failed to purge user changes", ex)
+            0
+        }
+}
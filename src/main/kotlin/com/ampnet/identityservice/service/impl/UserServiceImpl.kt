@@ -7,6 +7,7 @@ import com.ampnet.identityservice.exception.InvalidRequestException
 import com.ampnet.identityservice.exception.ResourceNotFoundException
 import com.ampnet.identityservice.persistence.model.Document
 import com.ampnet.identityservice.persistence.model.User
+import com.ampnet.identityservice.persistence.model.UserChangeType
 import com.ampnet.identityservice.persistence.model.UserInfo
 import com.ampnet.identityservice.persistence.repository.UserInfoRepository
 import com.ampnet.identityservice.persistence.repository.UserRepository
@@ -14,10 +15,12 @@ import com.ampnet.identityservice.service.UserService
 import com.ampnet.identityservice.service.UuidProvider
 import com.ampnet.identityservice.service.WhitelistQueueService
 import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.ampnet.identityservice.service.pojo.UserChangedEvent
 import com.ampnet.identityservice.service.pojo.UserResponse
 import com.ampnet.identityservice.service.unwrap
 import com.ampnet.identityservice.util.WalletAddress
 import mu.KLogging
+import org.springframework.context.ApplicationEventPublisher
 import org.springframework.stereotype.Service
 import org.springframework.transaction.annotation.Transactional
 import java.time.LocalDate
@@ -32,7 +35,8 @@ class UserServiceImpl(
     private val zonedDateTimeProvider: ZonedDateTimeProvider,
     private val userRepository: UserRepository,
     private val userInfoRepository: UserInfoRepository,
-    private val whitelistQueueService: WhitelistQueueService
+    private val whitelistQueueService: WhitelistQueueService,
+    private val applicationEventPublisher: ApplicationEventPublisher
 ) : UserService {
 
     companion object : KLogging()
@@ -51,20 +55,12 @@ class UserServiceImpl(
         return UserResponse(user)
     }
 
-    @Transactional
-    override fun createUser(address: WalletAddress): UserResponse {
-        val user = userRepository.findByAddress(address.value) ?: kotlin.run {
-            logger.info { "User is created for address: $address" }
-            userRepository.save(User(address.value))
-        }
-        return UserResponse(user)
-    }
-
     @Transactional
     override fun updateEmail(email: String, address: WalletAddress): UserResponse {
         logger.debug { "Updating mail for address: $address with new email: $email" }
         val user = getUser(address)
         user.email = email.lowercase()
+        applicationEventPublisher.publishEvent(UserChangedEvent(user.address, UserChangeType.EMAIL_UPDATED))
         return UserResponse(user)
     }
 
@@ -101,6 +97,7 @@ class UserServiceImpl(
         disconnectUserInfo(user)
         userInfo.connected = true
         user.userInfoUuid = userInfo.uuid
+        applicationEventPublisher.publishEvent(UserChangedEvent(user.address, UserChangeType.KYC_CONNECTED))
         return user
     }
 
@@ -1,78 +1,139 @@
 package com.ampnet.identityservice.service.impl
 
-import com.ampnet.identityservice.blockchain.BlockchainService
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.config.AuthExecutorConfig
 import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequestByMessage
 import com.ampnet.identityservice.exception.ErrorCode
 import com.ampnet.identityservice.exception.InvalidRequestException
 import com.ampnet.identityservice.exception.ResourceNotFoundException
+import com.ampnet.identityservice.service.ChallengeStore
+import com.ampnet.identityservice.service.RandomProvider
 import com.ampnet.identityservice.service.VerificationService
 import com.ampnet.identityservice.util.ChainId
 import com.ampnet.identityservice.util.ContractAddress
+import com.ampnet.identityservice.util.PersonalSignature
 import com.ampnet.identityservice.util.WalletAddress
+import com.ampnet.identityservice.util.runAndWait
 import mu.KLogging
-import org.kethereum.crypto.signedMessageToKey
-import org.kethereum.crypto.toAddress
-import org.kethereum.model.SignatureData
+import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.stereotype.Service
-import org.web3j.utils.Numeric
-import java.math.BigInteger
-import java.security.SecureRandom
-import java.security.SignatureException
-import java.util.UUID
-import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
 import org.web3j.crypto.Hash.sha3 as keccak256
 
 @Service
-class VerificationServiceImpl(private val blockchainService: BlockchainService) : VerificationService {
+@Suppress("TooManyFunctions")
+class VerificationServiceImpl(
+    private val contractWalletService: ContractWalletService,
+    private val challengeStore: ChallengeStore,
+    private val signedChallengeService: SignedChallengeService,
+    private val randomProvider: RandomProvider,
+    applicationProperties: ApplicationProperties,
+    @Qualifier(AuthExecutorConfig.AUTH_EXECUTOR) private val authExecutor: ExecutorService
+) : VerificationService {
 
     companion object : KLogging()
 
-    @Suppress("MagicNumber")
-    private val vOffset = BigInteger.valueOf(27L)
-
-    @Suppress("MagicNumber")
-    private val personalSignatureLength = 132
-    private val userPayload = ConcurrentHashMap<WalletAddress, String>()
-    private val messagePayloads = ConcurrentHashMap<String, String>()
+    private val signedChallenges = applicationProperties.challenge.signed
 
     override fun generatePayload(address: WalletAddress): String {
-        val nonce = SecureRandom().nextInt(Integer.MAX_VALUE).toString()
+        val nonce = randomProvider.getNonce()
         val userMessage = SignMessage(address.value, nonce).toString()
-        userPayload[address] = userMessage
+        if (signedChallenges) {
+            return signedChallengeService.sign(userMessage)
+        }
+        challengeStore.put(address.value, userMessage)
         return userMessage
     }
 
     override fun generatePayloadByMessage(): String {
-        val nonce = SecureRandom().nextInt(Integer.MAX_VALUE).toString()
-        val userMessage = SignMessage(null, nonce).toString()
-        messagePayloads[userMessage] = userMessage
+        val nonce = randomProvider.getNonce()
+        val signMessage = SignMessage(null, nonce, randomProvider.getId())
+        val userMessage = signMessage.toString()
+        if (signedChallenges) {
+            return signedChallengeService.sign(userMessage)
+        }
+        challengeStore.put(signMessage.id, userMessage)
         return userMessage
     }
 
+    /**
+     * Stored challenges are taken from the store before the signature is checked, so a challenge is single-use
+     * even if verification fails and the client has to request a new one.
+     */
     @Throws(ResourceNotFoundException::class, InvalidRequestException::class)
-    override fun verifyPayload(address: WalletAddress, signedPayload: String, chainId: ChainId?) {
-        val payload = userPayload[address] ?: throw ResourceNotFoundException(
+    override fun verifyPayload(
+        address: WalletAddress,
+        signedPayload: String,
+        chainId: ChainId?,
+        messageToSign: String?
+    ) {
+        if (signedChallenges) {
+            val payload = messageToSign ?: throw ResourceNotFoundException(
+                ErrorCode.AUTH_PAYLOAD_MISSING, "Missing signed message for address: $address."
+            )
+            signedChallengeService.validate(payload, address)
+            verifySignature(address, payload, signedPayload, chainId)
+            signedChallengeService.markUsed(payload)
+            return
+        }
+        val payload = challengeStore.take(address.value) ?: throw ResourceNotFoundException(
             ErrorCode.AUTH_PAYLOAD_MISSING, "There is no payload associated with address: $address."
         )
-        if (signedPayload.length == personalSignatureLength) {
-            verifyPersonalSignedPayload(address, payload, signedPayload)
-        } else {
-            if (chainId == null) {
-                throw InvalidRequestException(
-                    ErrorCode.BLOCKCHAIN_ID,
-                    "Cannot verify contract signature without chain id"
-                )
-            }
-            verifyEip1271Signature(chainId, ContractAddress(address.value), payload, signedPayload)
-        }
+        verifySignature(address, payload, signedPayload, chainId)
     }
 
     override fun verifyPayloadByMessage(request: AuthorizationRequestByMessage) {
-        val payload = messagePayloads[request.messageToSign] ?: throw ResourceNotFoundException(
-            ErrorCode.AUTH_PAYLOAD_MISSING, "There is no payload for message: ${request.messageToSign}."
-        )
+        if (signedChallenges) {
+            signedChallengeService.validate(request.messageToSign, null)
+            verifyMessageSignedPayload(WalletAddress(request.address), request.messageToSign, request.signedPayload)
+            signedChallengeService.markUsed(request.messageToSign)
+            return
+        }
+        val id = SignMessage.parseId(request.messageToSign)
+        val payload = id?.let { challengeStore.take(it) }
+        if (id == null || payload != request.messageToSign) {
+            throw ResourceNotFoundException(
+                ErrorCode.AUTH_PAYLOAD_MISSING, "There is no payload for message: ${request.messageToSign}."
+            )
+        }
+        verifyMessageSignedPayload(WalletAddress(request.address), payload, request.signedPayload)
+    }
+
+    /**
+     * Personal signatures are verified locally first. Only if that fails, or the signature is not a personal one,
+     * the address is checked for deployed code and the signature is verified by the contract wallet (EIP-1271).
+     * Without the chain id, contract wallet signatures are checked on the configured probe chains.
+     */
+    private fun verifySignature(address: WalletAddress, payload: String, signedPayload: String, chainId: ChainId?) {
+        val contractAddress = ContractAddress(address.value)
+        when {
+            signedPayload.length == PersonalSignature.SIGNATURE_HEX_LENGTH ->
+                verifyPersonalOrContractSignature(address, payload, signedPayload, chainId)
+            chainId == null -> verifyEip1271SignatureOnAnyChain(contractAddress, payload, signedPayload)
+            contractWalletService.isContract(chainId, contractAddress) ->
+                verifyEip1271Signature(chainId, contractAddress, payload, signedPayload)
+            else -> throw InvalidRequestException(
+                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID,
+                "Address: $address is not a contract wallet on chain: ${chainId.value}"
+            )
+        }
+    }
 
-        return verifyMessageSignedPayload(WalletAddress(request.address), payload, request.signedPayload)
+    private fun verifyPersonalOrContractSignature(
+        address: WalletAddress,
+        payload: String,
+        signedPayload: String,
+        chainId: ChainId?
+    ) {
+        try {
+            verifyPersonalSignedPayload(address, payload, signedPayload)
+        } catch (ex: InvalidRequestException) {
+            val contractAddress = ContractAddress(address.value)
+            if (chainId == null || !contractWalletService.isContract(chainId, contractAddress)) {
+                throw ex
+            }
+            verifyEip1271Signature(chainId, contractAddress, payload, signedPayload)
+        }
     }
 
     internal fun verifyEip1271Signature(
@@ -81,14 +142,8 @@ class VerificationServiceImpl(private val blockchainService: BlockchainService)
         payload: String,
         signedPayload: String
     ) {
-        val message = if (signedPayload == "0x") {
-            generateEip191Message(payload.toByteArray())
-        } else {
-            payload.toByteArray()
-        }
-        val encodedMessage = keccak256(message)
-        val encodedSignedPayload = Numeric.hexStringToByteArray(signedPayload)
-        if (!blockchainService.isSignatureValid(chainId, address, encodedMessage, encodedSignedPayload)) {
+        val encodedMessage = getEip1271MessageHash(payload, signedPayload)
+        if (!contractWalletService.isSignatureValid(chainId, address, encodedMessage, signedPayload)) {
             throw InvalidRequestException(
                 ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID,
                 "Contract: $address didn't sign the message: $signedPayload"
@@ -96,87 +151,49 @@ class VerificationServiceImpl(private val blockchainService: BlockchainService)
         }
     }
 
-    internal fun verifyPersonalSignedPayload(address: WalletAddress, payload: String, signedPayload: String) {
-        val eip191 = generateEip191Message(payload.toByteArray())
-        try {
-            val signatureData = getPersonalSignatureData(signedPayload)
-            val publicKey = signedMessageToKey(eip191, signatureData)
-            if (address != WalletAddress(publicKey.toAddress().toString())) {
-                throw InvalidRequestException(
-                    ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID,
-                    "Address: $address not equal to signed address: ${publicKey.toAddress()}"
-                )
-            }
-            userPayload.remove(address)
-        } catch (ex: SignatureException) {
-            throw InvalidRequestException(
-                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Public key cannot be recovered from the signature", ex
+    private fun verifyEip1271SignatureOnAnyChain(address: ContractAddress, payload: String, signedPayload: String) {
+        val encodedMessage = getEip1271MessageHash(payload, signedPayload)
+        contractWalletService.findChainWithValidSignature(address, encodedMessage, signedPayload)
+            ?: throw InvalidRequestException(
+                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID,
+                "Contract: $address didn't sign the message: $signedPayload on any probed chain"
             )
-        }
     }
 
-    internal fun verifyMessageSignedPayload(address: WalletAddress, payload: String, signedPayload: String) {
-        val eip191 = generateEip191Message(payload.toByteArray())
-
-        try {
-            val signatureData = getPersonalSignatureData(signedPayload)
-            val publicKey = signedMessageToKey(eip191, signatureData)
-            if (address != WalletAddress(publicKey.toAddress().toString())) {
-                throw InvalidRequestException(
-                    ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID,
-                    "Address: $address not equal to signed address: ${publicKey.toAddress()}"
-                )
-            }
-            messagePayloads.remove(payload)
-        } catch (ex: SignatureException) {
-            throw InvalidRequestException(
-                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Public key cannot be recovered from the signature", ex
-            )
+    private fun getEip1271MessageHash(payload: String, signedPayload: String): ByteArray =
+        if (signedPayload == "0x") {
+            PersonalSignature.hash(payload.toByteArray())
+        } else {
+            keccak256(payload.toByteArray())
         }
-    }
 
-    private fun generateEip191Message(message: ByteArray): ByteArray =
-        0x19.toByte().toByteArray() + ("Ethereum Signed Message:\n" + message.size).toByteArray() + message
-
-    /*
-     ECDSA signatures consist of two numbers(integers): r and s.
-     Ethereum uses an additional v(recovery identifier) variable. The signature can be notated as {r, s, v}.
+    /**
+     * Signature recovery is CPU bound, it runs on the auth executor while the calling thread waits.
      */
-    @Suppress("MagicNumber")
-    private fun getPersonalSignatureData(signedPayload: String): SignatureData {
-        if (signedPayload.length != personalSignatureLength)
-            throw InvalidRequestException(
-                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature: $signedPayload is of wrong length."
-            )
-        val r = signedPayload.substring(2, 66)
-        val s = signedPayload.substring(66, 130)
-        val v = signedPayload.substring(130, 132)
-        try {
-            return SignatureData(BigInteger(r, 16), BigInteger(s, 16), BigInteger(v, 16).withVOffset())
-        } catch (ex: NumberFormatException) {
-            throw InvalidRequestException(
-                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature: $signedPayload is not a valid hex value.", ex
-            )
-        }
-    }
+    internal fun verifyPersonalSignedPayload(address: WalletAddress, payload: String, signedPayload: String) =
+        authExecutor.runAndWait { PersonalSignature.verify(address, payload, signedPayload) }
 
-    private fun BigInteger.withVOffset(): BigInteger =
-        if (this == BigInteger.ZERO || this == BigInteger.ONE) {
-            this + vOffset
-        } else {
-            this
-        }
+    internal fun verifyMessageSignedPayload(address: WalletAddress, payload: String, signedPayload: String) =
+        authExecutor.runAndWait { PersonalSignature.verify(address, payload, signedPayload) }
 
-    private fun Byte.toByteArray() = ByteArray(1) { this }
+    private data class SignMessage(val address: String?, val nonce: String, val id: String = "") {
+
+        companion object {
+            private const val ID_PREFIX = "unique ID: "
+            private const val ID_SUFFIX = ","
+
+            fun parseId(message: String): String? = message.substringAfter(ID_PREFIX, "")
+                .substringBefore(ID_SUFFIX, "")
+                .takeIf { it.isNotEmpty() }
+        }
 
-    private data class SignMessage(val address: String?, val nonce: String) {
         override fun toString(): String =
             if (address != null) {
                 "Welcome!\nPlease sign this message to verify that you are the owner of address:" +
                     " $address\nNonce: $nonce"
             } else {
                 "Please sign this message to verify your wallet ownership," +
-                    " unique ID: ${UUID.randomUUID()}, nonce: $nonce"
+                    " $ID_PREFIX$id$ID_SUFFIX nonce: $nonce"
             }
     }
 }
@@ -0,0 +1,11 @@
+package com.ampnet.identityservice.service.pojo
+
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.util.WalletAddress
+
+data class BatchLoginResult(
+    val address: WalletAddress,
+    val token: AccessAndRefreshToken? = null,
+    val errorCode: ErrorCode? = null,
+    val message: String? = null
+)
@@ -0,0 +1,9 @@
+package com.ampnet.identityservice.service.pojo
+
+import com.ampnet.identityservice.persistence.model.UserChangeType
+
+/**
+ * Published when fields of the user returned by gRPC lookups (email, language or connected KYC data) change,
+ * or when a user is created.
+ */
+data class UserChangedEvent(val address: String, val type: UserChangeType)
@@ -0,0 +1,64 @@
+package com.ampnet.identityservice.util
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Bloom filter of strings sized for [expectedEntries] at the given false positive rate. Lookups and inserts
+ * are lock free, entries can not be removed so the filter is rebuilt when its content shrinks.
+ */
+@Suppress("MagicNumber")
+class BloomFilter(expectedEntries: Int, falsePositiveRate: Double = 0.01) {
+
+    private companion object {
+        const val FNV_OFFSET = -3750763034362895579L
+        const val FNV_PRIME = 1099511628211L
+        val LN_2 = Math.log(2.0)
+    }
+
+    private val bitCount: Int
+    private val hashCount: Int
+    private val words: AtomicLongArray
+
+    init {
+        val entries = maxOf(expectedEntries, 1)
+        val bits = Math.ceil(-entries * Math.log(falsePositiveRate) / (LN_2 * LN_2)).toLong()
+        words = AtomicLongArray(((bits + 63) / 64).toInt().coerceAtLeast(1))
+        bitCount = words.length() * 64
+        hashCount = Math.round(bitCount.toDouble() / entries * LN_2).toInt().coerceIn(1, 16)
+    }
+
+    fun add(value: String) {
+        val hash = hash(value)
+        for (i in 0 until hashCount) {
+            val bit = index(hash, i)
+            val mask = 1L shl bit
+            words.accumulateAndGet(bit ushr 6, mask) { word, set -> word or set }
+        }
+    }
+
+    /**
+     * @return false if the value was definitely never added.
+     */
+    fun mightContain(value: String): Boolean {
+        val hash = hash(value)
+        return (0 until hashCount).all {
+            val bit = index(hash, it)
+            (words.get(bit ushr 6) and (1L shl bit)) != 0L
+        }
+    }
+
+    private fun index(hash: Long, i: Int): Int {
+        val combined = hash.toInt() + i * (hash ushr 32).toInt()
+        return (combined and Int.MAX_VALUE) % bitCount
+    }
+
+    private fun hash(value: String): Long {
+        var hash = FNV_OFFSET
+        for (char in value) {
+            hash = (hash xor char.code.toLong()) * FNV_PRIME
+        }
+        hash = (hash xor (hash ushr 33)) * -49064778989728563L
+        hash = (hash xor (hash ushr 33)) * -4265267296055464877L
+        return hash xor (hash ushr 33)
+    }
+}
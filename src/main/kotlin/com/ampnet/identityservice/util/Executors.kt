@@ -0,0 +1,57 @@
+package com.ampnet.identityservice.util
+
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics
+import io.micrometer.core.instrument.util.NamedThreadFactory
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs the task on the executor and waits for its result. An exception thrown by the task is rethrown as is,
+ * so callers handle it the same as if the task ran on the calling thread.
+ *
+ * @throws RejectedExecutionException if the executor does not accept the task.
+ */
+@Throws(RejectedExecutionException::class)
+fun <T> ExecutorService.runAndWait(task: () -> T): T =
+    try {
+        submit(Callable(task)).get()
+    } catch (ex: ExecutionException) {
+        throw ex.cause ?: ex
+    }
+
+/**
+ * Creates an executor of [threads] threads with a queue of at most [queueCapacity] tasks. Once the queue is full
+ * a submitted task is rejected with [RejectedExecutionException] and counted in [rejectedMetric] tagged with the
+ * executor [name], so a burst is shed instead of piling up in memory.
+ */
+fun boundedExecutor(
+    name: String,
+    threads: Int,
+    queueCapacity: Int,
+    rejectedMetric: String,
+    meterRegistry: MeterRegistry
+): ExecutorService {
+    val rejected = Counter.builder(rejectedMetric)
+        .description("Tasks rejected because the executor queue is full")
+        .tag("name", name)
+        .register(meterRegistry)
+    val executor = ThreadPoolExecutor(
+        threads,
+        threads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        ArrayBlockingQueue(queueCapacity),
+        NamedThreadFactory(name)
+    ) { _, _ ->
+        rejected.increment()
+        throw RejectedExecutionException("Executor $name queue is full")
+    }
+    return ExecutorServiceMetrics.monitor(meterRegistry, executor, name)
+}
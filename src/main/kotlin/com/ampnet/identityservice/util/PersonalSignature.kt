@@ -0,0 +1,173 @@
+package com.ampnet.identityservice.util
+
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.InvalidRequestException
+import org.bouncycastle.jcajce.provider.digest.Keccak
+import org.web3j.crypto.ECDSASignature
+import org.web3j.crypto.Sign
+import java.math.BigInteger
+
+/**
+ * EIP-191 (personal_sign) hashing and signature verification.
+ *
+ * Called for every wallet login, so the signature is decoded from hex straight into per-thread buffers,
+ * the prefixed message is hashed incrementally without building the concatenated byte array, and the
+ * recovered address is compared as 20 raw bytes instead of through its hex string form.
+ */
+@Suppress("MagicNumber")
+object PersonalSignature {
+
+    const val SIGNATURE_HEX_LENGTH = 132
+
+    private const val HASH_LENGTH = 32
+    private const val ADDRESS_LENGTH = 20
+    private const val PUBLIC_KEY_LENGTH = 64
+    private const val V_OFFSET = 27
+    private val prefix = "\u0019Ethereum Signed Message:\n".toByteArray()
+
+    private class Buffers {
+        val keccak = Keccak.Digest256()
+        val r = ByteArray(HASH_LENGTH)
+        val s = ByteArray(HASH_LENGTH)
+        var recoveryId = 0
+        val hash = ByteArray(HASH_LENGTH)
+        val publicKey = ByteArray(PUBLIC_KEY_LENGTH)
+        val digits = ByteArray(10)
+    }
+
+    private val buffers = ThreadLocal.withInitial { Buffers() }
+
+    /**
+     * Computes keccak256("\u0019Ethereum Signed Message:\n" + message.size + message).
+     */
+    fun hash(message: ByteArray): ByteArray {
+        val buffers = buffers.get()
+        hashInto(buffers, message)
+        return buffers.hash.copyOf()
+    }
+
+    /**
+     * Verifies that [signature] over the EIP-191 prefixed [message] was created by [address].
+     *
+     * @throws InvalidRequestException with [ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID] if the signature is malformed,
+     * the public key cannot be recovered or it does not belong to the given address.
+     */
+    @Throws(InvalidRequestException::class)
+    fun verify(address: WalletAddress, message: String, signature: String) {
+        val buffers = buffers.get()
+        decodeSignature(signature, buffers)
+        hashInto(buffers, message.toByteArray())
+        val publicKey = recoverPublicKey(buffers) ?: throw InvalidRequestException(
+            ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Public key cannot be recovered from the signature"
+        )
+        toUnsignedBytes(publicKey, buffers.publicKey)
+        buffers.keccak.update(buffers.publicKey)
+        buffers.keccak.digest(buffers.hash, 0, HASH_LENGTH)
+        if (!addressMatches(address, buffers.hash)) {
+            val signer = "0x" + buffers.hash.copyOfRange(HASH_LENGTH - ADDRESS_LENGTH, HASH_LENGTH).toHex()
+            throw InvalidRequestException(
+                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Address: $address not equal to signed address: $signer"
+            )
+        }
+    }
+
+    private fun hashInto(buffers: Buffers, message: ByteArray) {
+        val keccak = buffers.keccak
+        keccak.update(prefix)
+        var length = message.size
+        var position = buffers.digits.size
+        do {
+            buffers.digits[--position] = ('0' + length % 10).code.toByte()
+            length /= 10
+        } while (length > 0)
+        keccak.update(buffers.digits, position, buffers.digits.size - position)
+        keccak.update(message)
+        keccak.digest(buffers.hash, 0, HASH_LENGTH)
+    }
+
+    /*
+     ECDSA signatures consist of two numbers(integers): r and s.
+     Ethereum uses an additional v(recovery identifier) variable. The signature is encoded as 0x{r}{s}{v}.
+     */
+    private fun decodeSignature(signature: String, buffers: Buffers) {
+        if (signature.length != SIGNATURE_HEX_LENGTH) {
+            throw InvalidRequestException(
+                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature: $signature is of wrong length."
+            )
+        }
+        val v = hexByte(signature, 2 + 4 * HASH_LENGTH)
+        if (v < 0 || !decodeHex(signature, 2, buffers.r) || !decodeHex(signature, 2 + 2 * HASH_LENGTH, buffers.s)) {
+            throw InvalidRequestException(
+                ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature: $signature is not a valid hex value."
+            )
+        }
+        buffers.recoveryId = recoveryId(v)
+    }
+
+    /**
+     * @return false if the hex string contains a character which is not a hex digit.
+     */
+    private fun decodeHex(value: String, start: Int, output: ByteArray): Boolean {
+        for (i in output.indices) {
+            val byte = hexByte(value, start + 2 * i)
+            if (byte < 0) return false
+            output[i] = byte.toByte()
+        }
+        return true
+    }
+
+    /**
+     * @return value of the two hex digits at [index] or -1 if they are not hex digits.
+     */
+    private fun hexByte(value: String, index: Int): Int {
+        val high = hexValue(value[index])
+        val low = hexValue(value[index + 1])
+        return if (high < 0 || low < 0) -1 else high shl 4 or low
+    }
+
+    /*
+     Only v values 0 and 1 and their legacy 27 and 28 form are valid for personal_sign signatures.
+     */
+    private fun recoveryId(v: Int): Int = when (v) {
+        0, 1 -> v
+        V_OFFSET, V_OFFSET + 1 -> v - V_OFFSET
+        else -> throw InvalidRequestException(
+            ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature recovery id: $v is not valid."
+        )
+    }
+
+    private fun recoverPublicKey(buffers: Buffers): BigInteger? {
+        val r = BigInteger(1, buffers.r)
+        val s = BigInteger(1, buffers.s)
+        return try {
+            Sign.recoverFromSignature(buffers.recoveryId, ECDSASignature(r, s), buffers.hash)
+        } catch (ex: IllegalArgumentException) {
+            null
+        }
+    }
+
+    private fun toUnsignedBytes(value: BigInteger, output: ByteArray) {
+        val bytes = value.toByteArray()
+        val length = minOf(bytes.size, output.size)
+        output.fill(0, 0, output.size - length)
+        System.arraycopy(bytes, bytes.size - length, output, output.size - length, length)
+    }
+
+    private fun addressMatches(address: WalletAddress, hash: ByteArray): Boolean {
+        val value = address.value
+        val offset = HASH_LENGTH - ADDRESS_LENGTH
+        return value.length == 2 + 2 * ADDRESS_LENGTH && (0 until ADDRESS_LENGTH).all {
+            val expected = hexValue(value[2 + 2 * it]) shl 4 or hexValue(value[3 + 2 * it])
+            expected == (hash[offset + it].toInt() and 0xFF)
+        }
+    }
+
+    private fun hexValue(char: Char): Int = when (char) {
+        in '0'..'9' -> char - '0'
+        in 'a'..'f' -> char - 'a' + 10
+        in 'A'..'F' -> char - 'A' + 10
+        else -> -1
+    }
+
+    private fun ByteArray.toHex(): String = joinToString("") { "%02x".format(it) }
+}
@@ -0,0 +1,6 @@
+ALTER TABLE refresh_token ADD COLUMN token_hash BYTEA;
+UPDATE refresh_token SET token_hash = sha256(convert_to(token, 'UTF8'));
+ALTER TABLE refresh_token ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_token DROP COLUMN token;
+
+CREATE UNIQUE INDEX idx_refresh_token_token_hash ON refresh_token(token_hash);
@@ -0,0 +1 @@
+CREATE INDEX idx_refresh_token_created_at ON refresh_token(created_at);
@@ -0,0 +1,9 @@
+CREATE TABLE revoked_access_token(
+    id SERIAL PRIMARY KEY,
+    token_id VARCHAR(64) NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE UNIQUE INDEX idx_revoked_access_token_token_id ON revoked_access_token(token_id);
+CREATE INDEX idx_revoked_access_token_revoked_at ON revoked_access_token(revoked_at);
+CREATE INDEX idx_revoked_access_token_expires_at ON revoked_access_token(expires_at);
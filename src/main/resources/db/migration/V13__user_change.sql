@@ -0,0 +1,7 @@
+CREATE TABLE user_change(
+    id BIGSERIAL PRIMARY KEY,
+    address VARCHAR NOT NULL,
+    type VARCHAR(32) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp()
+);
+CREATE INDEX idx_user_change_created_at ON user_change(created_at);
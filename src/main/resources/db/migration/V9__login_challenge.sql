@@ -0,0 +1,7 @@
+CREATE UNLOGGED TABLE login_challenge(
+    challenge_key VARCHAR PRIMARY KEY,
+    payload VARCHAR NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_login_challenge_expires_at ON login_challenge(expires_at);
@@ -1,8 +1,12 @@
 package com.ampnet.identityservice.config
 
 import com.ampnet.identityservice.ManualFixedScheduler
+import com.ampnet.identityservice.grpc.UserChangeFeed
 import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.impl.AccessTokenDenylist
 import com.ampnet.identityservice.service.impl.AutoInvestQueueServiceImpl
+import com.ampnet.identityservice.service.impl.RefreshTokenPurger
+import com.ampnet.identityservice.service.impl.UserChangeOutbox
 import mu.KLogging
 import org.mockito.kotlin.given
 import org.mockito.kotlin.mock
@@ -24,12 +28,28 @@ class TestSchedulerConfiguration {
     @Bean
     fun autoInvestQueueScheduler() = ManualFixedScheduler()
 
+    @Bean
+    fun refreshTokenPurgeScheduler() = ManualFixedScheduler()
+
+    @Bean
+    fun accessTokenDenylistScheduler() = ManualFixedScheduler()
+
+    @Bean
+    fun userChangePurgeScheduler() = ManualFixedScheduler()
+
+    @Bean
+    fun userChangeFeedScheduler() = ManualFixedScheduler()
+
     @Bean
     @Primary
     fun scheduledExecutorServiceProvider(
         whitelistQueueScheduler: ManualFixedScheduler,
         faucetQueueScheduler: ManualFixedScheduler,
-        autoInvestQueueScheduler: ManualFixedScheduler
+        autoInvestQueueScheduler: ManualFixedScheduler,
+        refreshTokenPurgeScheduler: ManualFixedScheduler,
+        accessTokenDenylistScheduler: ManualFixedScheduler,
+        userChangePurgeScheduler: ManualFixedScheduler,
+        userChangeFeedScheduler: ManualFixedScheduler
     ): ScheduledExecutorServiceProvider {
         logger.info { "Using manual schedulers for tests" }
         return mock {
@@ -39,6 +59,14 @@ class TestSchedulerConfiguration {
                 .willReturn(faucetQueueScheduler)
             given(it.newSingleThreadScheduledExecutor(AutoInvestQueueServiceImpl.QUEUE_NAME))
                 .willReturn(autoInvestQueueScheduler)
+            given(it.newSingleThreadScheduledExecutor(RefreshTokenPurger.PURGE_NAME))
+                .willReturn(refreshTokenPurgeScheduler)
+            given(it.newSingleThreadScheduledExecutor(AccessTokenDenylist.SYNC_NAME))
+                .willReturn(accessTokenDenylistScheduler)
+            given(it.newSingleThreadScheduledExecutor(UserChangeOutbox.PURGE_NAME))
+                .willReturn(userChangePurgeScheduler)
+            given(it.newSingleThreadScheduledExecutor(UserChangeFeed.WATCH_NAME))
+                .willReturn(userChangeFeedScheduler)
         }
     }
 }
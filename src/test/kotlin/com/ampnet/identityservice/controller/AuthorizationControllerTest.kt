@@ -1,37 +1,50 @@
 package com.ampnet.identityservice.controller
 
-import com.ampnet.core.jwt.JwtTokenUtils
 import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequest
 import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequestByMessage
+import com.ampnet.identityservice.controller.pojo.request.BatchAuthorizationRequest
 import com.ampnet.identityservice.controller.pojo.request.PayloadRequest
 import com.ampnet.identityservice.controller.pojo.request.RefreshTokenRequest
 import com.ampnet.identityservice.controller.pojo.response.AccessRefreshTokenResponse
+import com.ampnet.identityservice.controller.pojo.response.BatchAuthorizationResponse
 import com.ampnet.identityservice.controller.pojo.response.PayloadResponse
 import com.ampnet.identityservice.exception.ErrorCode
 import com.ampnet.identityservice.persistence.model.RefreshToken
 import com.ampnet.identityservice.persistence.model.User
+import com.ampnet.identityservice.security.JwtTokenVerifier
 import com.ampnet.identityservice.util.WalletAddress
 import com.fasterxml.jackson.module.kotlin.readValue
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.kethereum.crypto.createEthereumKeyPair
 import org.kethereum.crypto.test_data.ADDRESS
 import org.kethereum.crypto.test_data.KEY_PAIR
+import org.kethereum.crypto.toAddress
 import org.kethereum.crypto.toHex
 import org.kethereum.eip191.signWithEIP191PersonalSign
+import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.http.MediaType
+import org.springframework.test.web.servlet.ResultActions
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers.content
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
 
 class AuthorizationControllerTest : ControllerTestBase() {
 
+    @Autowired
+    private lateinit var jwtTokenVerifier: JwtTokenVerifier
+
     private lateinit var testContext: TestContext
 
     private val authorizePath = "/authorize"
     private val authorizeByMessagePath = "/authorize/by-message"
     private val authorizeJwtPath = "$authorizePath/jwt"
     private val authorizeJwtByMessagePath = "$authorizePath/jwt/by-message"
+    private val authorizeJwtBatchPath = "$authorizePath/jwt/batch"
     private val tokenRefreshPath = "$authorizePath/refresh"
 
     @BeforeEach
@@ -81,7 +94,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
 
         verify("Client is authorized and gets jwt") {
             val request = AuthorizationRequest(ADDRESS.toString(), testContext.signedPayload, 0)
-            val result = mockMvc.perform(
+            val result = performAsync(
                 post(authorizeJwtPath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -111,7 +124,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
 
         verify("Client is authorized and gets jwt") {
             val request = AuthorizationRequest(ADDRESS.toString(), testContext.signedPayload, 0)
-            val result = mockMvc.perform(
+            val result = performAsync(
                 post(authorizeJwtPath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -141,7 +154,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
 
         verify("Client is authorized and gets jwt") {
             val request = AuthorizationRequestByMessage(ADDRESS.toString(), messageToSign, testContext.signedPayload)
-            val result = mockMvc.perform(
+            val result = performAsync(
                 post(authorizeJwtByMessagePath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -174,7 +187,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
 
         verify("Client is authorized and gets jwt") {
             val request = AuthorizationRequestByMessage(ADDRESS.toString(), messageToSign, testContext.signedPayload)
-            val result = mockMvc.perform(
+            val result = performAsync(
                 post(authorizeJwtByMessagePath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -191,6 +204,72 @@ class AuthorizationControllerTest : ControllerTestBase() {
         }
     }
 
+    @Test
+    fun mustBeAbleToAuthorizeJwtBatch() {
+        suppose("There are no users in database") {
+            databaseCleanerService.deleteAllUsers()
+        }
+        suppose("Client signs the payload") {
+            val payload = verificationService.generatePayload(WalletAddress(ADDRESS.toString()))
+            testContext.signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        }
+        suppose("Other address payload is signed with a wrong key") {
+            val otherAddress = createEthereumKeyPair().toAddress().toString()
+            val payload = verificationService.generatePayload(WalletAddress(otherAddress))
+            testContext.otherAddress = otherAddress
+            testContext.otherSignedPayload =
+                "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        }
+
+        verify("Client gets jwt only for the verified address") {
+            val request = BatchAuthorizationRequest(
+                listOf(
+                    AuthorizationRequest(ADDRESS.toString(), testContext.signedPayload, 0),
+                    AuthorizationRequest(testContext.otherAddress, testContext.otherSignedPayload, 0)
+                )
+            )
+            val result = performAsync(
+                post(authorizeJwtBatchPath)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request))
+            )
+                .andExpect(status().isOk)
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+            val response: BatchAuthorizationResponse = objectMapper.readValue(result.response.contentAsString)
+            assertThat(response.results).hasSize(2)
+            val verified = response.results.first()
+            assertThat(verified.address).isEqualTo(ADDRESS.toString())
+            assertThat(verified.errCode).isNull()
+            verifyAccessRefreshTokenResponse(verified.token!!)
+            val failed = response.results.last()
+            assertThat(failed.address).isEqualTo(WalletAddress(testContext.otherAddress).value)
+            assertThat(failed.token).isNull()
+            assertThat(failed.errCode).isEqualTo(getResponseErrorCode(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID))
+        }
+        verify("Only verified user is created") {
+            assertThat(userRepository.findByAddress(ADDRESS.toString())).isNotNull
+            assertThat(userRepository.count()).isEqualTo(1)
+        }
+    }
+
+    @Test
+    fun mustNotBeAbleToAuthorizeTooLargeBatch() {
+        verify("User will get bad request response") {
+            val items = (0..applicationProperties.auth.maxBatchSize).map {
+                AuthorizationRequest(ADDRESS.toString(), "0x", 0)
+            }
+            val response = performAsync(
+                post(authorizeJwtBatchPath)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(BatchAuthorizationRequest(items)))
+            )
+                .andExpect(status().isBadRequest)
+                .andReturn()
+            verifyResponseErrorCode(response, ErrorCode.AUTH_BATCH_TOO_LARGE)
+        }
+    }
+
     @Test
     fun mustBeAbleToGetAccessTokenWithRefreshToken() {
         suppose("Refresh token exists") {
@@ -200,8 +279,8 @@ class AuthorizationControllerTest : ControllerTestBase() {
         }
 
         verify("User can get access token using refresh token") {
-            val request = RefreshTokenRequest(testContext.refreshToken.token)
-            val result = mockMvc.perform(
+            val request = RefreshTokenRequest(defaultRefreshToken)
+            val result = performAsync(
                 post(tokenRefreshPath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -212,7 +291,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
             val response: AccessRefreshTokenResponse = objectMapper.readValue(result.response.contentAsString)
             verifyTokenForUserAddress(response.accessToken)
             assertThat(response.expiresIn).isEqualTo(applicationProperties.jwt.accessTokenValidityInMilliseconds())
-            assertThat(response.refreshToken).isEqualTo(testContext.refreshToken.token)
+            assertThat(response.refreshToken).isEqualTo(defaultRefreshToken)
             assertThat(response.refreshTokenExpiresIn)
                 .isLessThan(applicationProperties.jwt.refreshTokenValidityInMilliseconds())
         }
@@ -227,8 +306,8 @@ class AuthorizationControllerTest : ControllerTestBase() {
         }
 
         verify("User will get bad request response") {
-            val request = RefreshTokenRequest(testContext.refreshToken.token)
-            val response = mockMvc.perform(
+            val request = RefreshTokenRequest(defaultRefreshToken)
+            val response = performAsync(
                 post(tokenRefreshPath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -243,7 +322,7 @@ class AuthorizationControllerTest : ControllerTestBase() {
     fun mustNotBeAbleToGetAccessTokenWithNonExistingRefreshToken() {
         verify("User will get bad request response") {
             val request = RefreshTokenRequest("non-existing-refresh-token")
-            val response = mockMvc.perform(
+            val response = performAsync(
                 post(tokenRefreshPath)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(request))
@@ -254,6 +333,13 @@ class AuthorizationControllerTest : ControllerTestBase() {
         }
     }
 
+    private fun performAsync(requestBuilder: MockHttpServletRequestBuilder): ResultActions {
+        val result = mockMvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn()
+        return mockMvc.perform(asyncDispatch(result))
+    }
+
     private fun verifyAccessRefreshTokenResponse(response: AccessRefreshTokenResponse) {
         verifyTokenForUserAddress(response.accessToken)
         assertThat(response.expiresIn).isEqualTo(applicationProperties.jwt.accessTokenValidityInMilliseconds())
@@ -263,12 +349,14 @@ class AuthorizationControllerTest : ControllerTestBase() {
     }
 
     private fun verifyTokenForUserAddress(token: String) {
-        val address: String = JwtTokenUtils.decodeToken(token, applicationProperties.jwt.publicKey)
-        assertThat(address).isEqualTo(ADDRESS.toString())
+        val claims = jwtTokenVerifier.verify(token)
+        assertThat(claims.address).isEqualTo(ADDRESS.toString())
     }
 
     private class TestContext {
         lateinit var signedPayload: String
+        lateinit var otherAddress: String
+        lateinit var otherSignedPayload: String
         lateinit var refreshToken: RefreshToken
         lateinit var user: User
     }
@@ -20,6 +20,7 @@ import com.ampnet.identityservice.service.UuidProvider
 import com.ampnet.identityservice.service.VerificationService
 import com.ampnet.identityservice.service.WhitelistQueueService
 import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import com.ampnet.identityservice.service.impl.RefreshTokenStore
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.module.kotlin.readValue
 import org.junit.jupiter.api.BeforeEach
@@ -63,6 +64,11 @@ abstract class ControllerTestBase : TestBase() {
     @Autowired
     protected lateinit var refreshTokenRepository: RefreshTokenRepository
 
+    @Autowired
+    protected lateinit var refreshTokenStore: RefreshTokenStore
+
+    protected val defaultRefreshToken = "9asdf90asf90asf9asfis90fkas90fkas"
+
     @Autowired
     protected lateinit var userInfoRepository: UserInfoRepository
 
@@ -142,8 +148,5 @@ abstract class ControllerTestBase : TestBase() {
     protected fun createRefreshToken(
         address: String,
         createdAt: ZonedDateTime = zonedDateTimeProvider.getZonedDateTime()
-    ): RefreshToken {
-        val refreshToken = RefreshToken(0, address, "9asdf90asf90asf9asfis90fkas90fkas", createdAt)
-        return refreshTokenRepository.save(refreshToken)
-    }
+    ): RefreshToken = refreshTokenStore.save(address, defaultRefreshToken, createdAt)
 }
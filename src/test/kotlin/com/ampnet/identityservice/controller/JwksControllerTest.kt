@@ -0,0 +1,41 @@
+package com.ampnet.identityservice.controller
+
+import com.ampnet.identityservice.controller.pojo.response.JwksResponse
+import com.ampnet.identityservice.security.JwtKeyStore
+import com.fasterxml.jackson.module.kotlin.readValue
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.HttpHeaders
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.header
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+import java.time.Instant
+
+class JwksControllerTest : ControllerTestBase() {
+
+    private val jwksPath = "/.well-known/jwks.json"
+
+    @Autowired
+    private lateinit var jwtKeyStore: JwtKeyStore
+
+    @Test
+    fun mustBeAbleToGetJwks() {
+        verify("Unauthenticated user can get published keys") {
+            val result = mockMvc.perform(get(jwksPath))
+                .andExpect(status().isOk)
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+                .andReturn()
+
+            val response: JwksResponse = objectMapper.readValue(result.response.contentAsString)
+            val signingKey = jwtKeyStore.signingKey(Instant.now())
+            assertThat(response.keys).anySatisfy {
+                assertThat(it["kid"]).isEqualTo(signingKey.keyId)
+                assertThat(it["kty"]).isEqualTo("RSA")
+                assertThat(it["alg"]).isEqualTo("RS256")
+                assertThat(it["n"]).isNotBlank
+                assertThat(it["e"]).isEqualTo("AQAB")
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.ampnet.identityservice.controller.pojo.request.WhitelistRequest
 import com.ampnet.identityservice.exception.ErrorCode
 import com.ampnet.identityservice.persistence.model.RefreshToken
 import com.ampnet.identityservice.persistence.model.User
+import com.ampnet.identityservice.security.JwtTokenSigner
 import com.ampnet.identityservice.security.WithMockCrowdfundUser
 import com.ampnet.identityservice.service.impl.PinataResponse
 import com.ampnet.identityservice.service.pojo.UserResponse
@@ -17,6 +18,8 @@ import org.junit.jupiter.api.Test
 import org.kethereum.crypto.test_data.ADDRESS
 import org.mockito.kotlin.given
 import org.mockito.kotlin.times
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.http.HttpHeaders
 import org.springframework.http.MediaType
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
@@ -26,6 +29,9 @@ import org.mockito.kotlin.verify as verifyMock
 
 class UserControllerTest : ControllerTestBase() {
 
+    @Autowired
+    private lateinit var jwtTokenSigner: JwtTokenSigner
+
     private lateinit var testContext: TestContext
 
     private val userPath = "/user"
@@ -168,6 +174,25 @@ class UserControllerTest : ControllerTestBase() {
         }
     }
 
+    @Test
+    fun mustRejectAccessTokenAfterLogout() {
+        suppose("User has access token") {
+            testContext.user = createUser()
+            testContext.accessToken = jwtTokenSigner.encode(
+                testContext.user.address, applicationProperties.jwt.accessTokenValidityInMilliseconds()
+            )
+        }
+
+        verify("User can logout with access token") {
+            mockMvc.perform(post(logoutPath).header(HttpHeaders.AUTHORIZATION, "Bearer ${testContext.accessToken}"))
+                .andExpect(status().isOk)
+        }
+        verify("Access token is rejected") {
+            mockMvc.perform(get(userPath).header(HttpHeaders.AUTHORIZATION, "Bearer ${testContext.accessToken}"))
+                .andExpect(status().isUnauthorized)
+        }
+    }
+
     @Test
     @WithMockCrowdfundUser
     fun mustBeAbleToWhitelistAddressForIssuer() {
@@ -307,6 +332,7 @@ class UserControllerTest : ControllerTestBase() {
         lateinit var user: User
         val email = "new_email@gmail.com"
         lateinit var refreshToken: RefreshToken
+        lateinit var accessToken: String
         val issuerAddress = "0xb070a65b1dd7f49c90a59000bd8cca3259064d81"
         lateinit var whitelistRequest: WhitelistRequest
         lateinit var pinataResponse: PinataResponse
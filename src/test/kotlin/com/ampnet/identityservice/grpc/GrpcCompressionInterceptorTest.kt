@@ -0,0 +1,44 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.TestBase
+import io.grpc.Metadata
+import io.grpc.ServerCall
+import io.grpc.ServerCallHandler
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+
+class GrpcCompressionInterceptorTest : TestBase() {
+
+    private val call = mock<ServerCall<String, String>>()
+    private val next = mock<ServerCallHandler<String, String>>()
+    private val headers = Metadata()
+
+    @Test
+    fun mustSetCompression() {
+        verify("Compression is set on the call") {
+            GrpcCompressionInterceptor("gzip").interceptCall(call, headers, next)
+            Mockito.verify(call).setCompression("gzip")
+            Mockito.verify(next).startCall(call, headers)
+        }
+    }
+
+    @Test
+    fun mustNotSetCompressionWhenDisabled() {
+        verify("Compression is not set on the call") {
+            GrpcCompressionInterceptor("").interceptCall(call, headers, next)
+            Mockito.verify(call, never()).setCompression(any())
+            Mockito.verify(next).startCall(call, headers)
+        }
+    }
+
+    @Test
+    fun mustRejectUnknownEncoding() {
+        verify("Unknown encoding is rejected") {
+            assertThrows<IllegalArgumentException> { GrpcCompressionInterceptor("brotli") }
+        }
+    }
+}
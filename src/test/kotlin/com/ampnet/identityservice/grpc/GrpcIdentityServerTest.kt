@@ -1,32 +1,51 @@
 package com.ampnet.identityservice.grpc
 
 import com.ampnet.identityservice.TestBase
-import com.ampnet.identityservice.persistence.model.User
-import com.ampnet.identityservice.persistence.repository.UserInfoRepository
-import com.ampnet.identityservice.persistence.repository.UserRepository
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserResponseField
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
 import com.ampnet.identityservice.proto.GetUsersRequest
+import com.ampnet.identityservice.proto.UserChangeResponse
+import com.ampnet.identityservice.proto.UserResponse
 import com.ampnet.identityservice.proto.UsersResponse
+import com.ampnet.identityservice.proto.WatchUsersRequest
+import com.google.protobuf.FieldMask
+import io.grpc.Status
+import io.grpc.StatusRuntimeException
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
 import org.mockito.kotlin.given
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
 import java.time.ZonedDateTime
 
 class GrpcIdentityServerTest : TestBase() {
 
-    private val userRepository = mock<UserRepository>()
-    private val userInfoRepository = mock<UserInfoRepository>()
+    private val userResponseRepository = mock<UserResponseRepository>()
+    private val userChangeFeed = mock<UserChangeFeed>()
 
     private lateinit var grpcService: GrpcIdentityServer
     private lateinit var testContext: TestContext
 
     @BeforeEach
     fun init() {
-        Mockito.reset(userRepository)
-        Mockito.reset(userInfoRepository)
-        grpcService = GrpcIdentityServer(userRepository, userInfoRepository)
+        Mockito.reset(userResponseRepository, userChangeFeed)
+        val applicationProperties = ApplicationProperties().apply { grpc.streamChunkSize = 2 }
+        val meterRegistry = SimpleMeterRegistry()
+        val userResponseLoader = UserResponseLoader(userResponseRepository, applicationProperties, meterRegistry)
+        val userResponseCache = UserResponseCache(userResponseLoader, applicationProperties, meterRegistry)
+        grpcService = GrpcIdentityServer(
+            userResponseRepository, userResponseCache, userChangeFeed, applicationProperties
+        )
         testContext = TestContext()
     }
 
@@ -35,7 +54,7 @@ class GrpcIdentityServerTest : TestBase() {
         suppose("Users exist") {
             testContext.addresses = listOf("0x0", "0x01")
             testContext.users = createListOfUser(testContext.addresses)
-            given(userRepository.findAllById(testContext.addresses)).willReturn(testContext.users)
+            given(userResponseRepository.findAllByAddresses(testContext.addresses)).willReturn(testContext.users)
         }
 
         verify("Grpc service will return users") {
@@ -45,8 +64,7 @@ class GrpcIdentityServerTest : TestBase() {
 
             val streamObserver = mock<StreamObserver<UsersResponse>>()
             grpcService.getUsers(request, streamObserver)
-            val usersResponse = testContext.users.map { grpcService.generateUserResponse(it, null) }
-            val response = UsersResponse.newBuilder().addAllUsers(usersResponse).build()
+            val response = UsersResponse.newBuilder().addAllUsers(testContext.users).build()
             Mockito.verify(streamObserver).onNext(response)
             Mockito.verify(streamObserver).onCompleted()
             Mockito.verify(streamObserver, Mockito.never()).onError(Mockito.any())
@@ -55,6 +73,10 @@ class GrpcIdentityServerTest : TestBase() {
 
     @Test
     fun mustReturnEmptyList() {
+        suppose("User does not exist") {
+            given(userResponseRepository.findAllByAddresses(any(), any())).willReturn(emptyList())
+        }
+
         verify("Grpc service will not fail on missing address") {
             val request = GetUsersRequest.newBuilder()
                 .addAddresses("missing-address")
@@ -64,26 +86,159 @@ class GrpcIdentityServerTest : TestBase() {
             grpcService.getUsers(request, streamObserver)
             val response = UsersResponse.newBuilder().clearUsers().build()
             Mockito.verify(streamObserver).onNext(response)
-            Mockito.verify(streamObserver).onNext(response)
             Mockito.verify(streamObserver).onCompleted()
             Mockito.verify(streamObserver, Mockito.never()).onError(Mockito.any())
         }
     }
 
-    private fun createListOfUser(addresses: List<String>): List<User> {
-        val users = mutableListOf<User>()
-        addresses.forEach {
-            val user = createUser(it)
-            users.add(user)
+    @Test
+    fun mustNormalizeRequestedAddresses() {
+        suppose("Users exist") {
+            testContext.addresses = listOf("0x0b", "0x0a")
+            testContext.users = createListOfUser(testContext.addresses)
+            given(userResponseRepository.findAllByAddresses(testContext.addresses))
+                .willReturn(testContext.users.reversed())
+        }
+
+        verify("Users are returned once in request order") {
+            val request = GetUsersRequest.newBuilder()
+                .addAllAddresses(listOf("0x0B", " 0x0a", "0x0b"))
+                .build()
+
+            val streamObserver = mock<StreamObserver<UsersResponse>>()
+            grpcService.getUsers(request, streamObserver)
+            val response = UsersResponse.newBuilder().addAllUsers(testContext.users).build()
+            Mockito.verify(streamObserver).onNext(response)
+            Mockito.verify(streamObserver).onCompleted()
         }
-        return users
     }
 
-    private fun createUser(address: String): User =
-        User(address, "email@mail.com", null, ZonedDateTime.now(), null)
+    @Test
+    fun mustLoadOnlyMaskedFields() {
+        val fields = UserResponseFields(setOf(UserResponseField.ADDRESS, UserResponseField.FIRST_NAME))
+        suppose("User exists") {
+            testContext.addresses = listOf("0x01")
+            testContext.users = createListOfUser(testContext.addresses)
+            given(userResponseRepository.findAllByAddresses(testContext.addresses, fields))
+                .willReturn(testContext.users)
+        }
+
+        verify("Only masked fields are requested") {
+            val request = GetUsersRequest.newBuilder()
+                .addAllAddresses(testContext.addresses)
+                .setFieldMask(FieldMask.newBuilder().addPaths("first_name"))
+                .build()
+
+            val streamObserver = mock<StreamObserver<UsersResponse>>()
+            grpcService.getUsers(request, streamObserver)
+            Mockito.verify(streamObserver).onNext(UsersResponse.newBuilder().addAllUsers(testContext.users).build())
+            Mockito.verify(userResponseRepository).findAllByAddresses(testContext.addresses, fields)
+        }
+    }
+
+    @Test
+    fun mustRejectUnknownMaskedField() {
+        verify("Call fails with invalid argument") {
+            val request = GetUsersRequest.newBuilder()
+                .addAddresses("0x01")
+                .setFieldMask(FieldMask.newBuilder().addPaths("password"))
+                .build()
+
+            val streamObserver = mock<StreamObserver<UsersResponse>>()
+            grpcService.getUsers(request, streamObserver)
+            val error = argumentCaptor<Throwable>()
+            Mockito.verify(streamObserver).onError(error.capture())
+            assertThat((error.firstValue as StatusRuntimeException).status.code).isEqualTo(Status.Code.INVALID_ARGUMENT)
+            Mockito.verify(streamObserver, never()).onNext(any())
+        }
+    }
+
+    @Test
+    fun mustStreamUsersInChunks() {
+        suppose("Users exist") {
+            testContext.addresses = listOf("0x03", "0x01", "0x02", "0x01")
+            testContext.users = createListOfUser(testContext.addresses.distinct())
+            given(userResponseRepository.findAllByAddresses(any(), any())).willAnswer { invocation ->
+                val addresses = invocation.getArgument<Collection<String>>(0)
+                testContext.users.filter { it.address in addresses }
+            }
+        }
+
+        verify("Users are streamed in chunks ordered by address") {
+            val request = GetUsersRequest.newBuilder().addAllAddresses(testContext.addresses).build()
+            val streamObserver = mock<ServerCallStreamObserver<UsersResponse>>()
+            given(streamObserver.isReady).willReturn(true)
+            grpcService.streamUsers(request, streamObserver)
+            getOnReadyHandler(streamObserver).run()
+
+            val responses = argumentCaptor<UsersResponse>()
+            Mockito.verify(streamObserver, times(2)).onNext(responses.capture())
+            assertThat(responses.allValues.map { response -> response.usersList.map { it.address } })
+                .containsExactly(listOf("0x01", "0x02"), listOf("0x03"))
+            Mockito.verify(streamObserver).onCompleted()
+        }
+    }
+
+    @Test
+    fun mustSuspendStreamWhenClientIsNotReady() {
+        suppose("Users exist") {
+            testContext.addresses = listOf("0x01", "0x02", "0x03")
+            testContext.users = createListOfUser(testContext.addresses)
+            given(userResponseRepository.findAllByAddresses(any(), any())).willReturn(testContext.users)
+        }
+
+        verify("Only chunks the client is ready for are loaded") {
+            val request = GetUsersRequest.newBuilder().addAllAddresses(testContext.addresses).build()
+            val streamObserver = mock<ServerCallStreamObserver<UsersResponse>>()
+            given(streamObserver.isReady).willReturn(true, false)
+            grpcService.streamUsers(request, streamObserver)
+            val onReadyHandler = getOnReadyHandler(streamObserver)
+            onReadyHandler.run()
+            Mockito.verify(streamObserver, times(1)).onNext(any())
+            Mockito.verify(userResponseRepository, times(1)).findAllByAddresses(any(), any())
+            Mockito.verify(streamObserver, never()).onCompleted()
+
+            given(streamObserver.isReady).willReturn(true)
+            onReadyHandler.run()
+            Mockito.verify(streamObserver, times(2)).onNext(any())
+            Mockito.verify(streamObserver).onCompleted()
+        }
+    }
+
+    @Test
+    fun mustWatchUsersAfterCursor() {
+        verify("Call is registered in the change feed with masked fields") {
+            val request = WatchUsersRequest.newBuilder()
+                .setCursor(42L)
+                .setFieldMask(FieldMask.newBuilder().addPaths("email"))
+                .build()
+
+            val streamObserver = mock<ServerCallStreamObserver<UserChangeResponse>>()
+            grpcService.watchUsers(request, streamObserver)
+            Mockito.verify(userChangeFeed).watch(
+                streamObserver, 42L, UserResponseFields.fromPaths(listOf("email"))
+            )
+        }
+    }
+
+    private fun getOnReadyHandler(streamObserver: ServerCallStreamObserver<UsersResponse>): Runnable {
+        val handler = argumentCaptor<Runnable>()
+        Mockito.verify(streamObserver).setOnReadyHandler(handler.capture())
+        return handler.firstValue
+    }
+
+    private fun createListOfUser(addresses: List<String>): List<UserResponse> =
+        addresses.map { createUser(it) }
+
+    private fun createUser(address: String): UserResponse =
+        UserResponse.newBuilder()
+            .setAddress(address)
+            .setEmail("email@mail.com")
+            .setCreatedAt(ZonedDateTime.now().toEpochSecond())
+            .build()
 
     private class TestContext {
         lateinit var addresses: List<String>
-        lateinit var users: List<User>
+        lateinit var users: List<UserResponse>
     }
 }
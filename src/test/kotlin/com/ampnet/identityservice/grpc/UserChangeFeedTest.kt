@@ -0,0 +1,212 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.ManualFixedScheduler
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserChange
+import com.ampnet.identityservice.persistence.model.UserChangeType
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserChangeRepository
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserChangeResponse
+import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.service.ScheduledExecutorServiceProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import io.grpc.Status
+import io.grpc.StatusRuntimeException
+import io.grpc.stub.ServerCallStreamObserver
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+
+class UserChangeFeedTest : TestBase() {
+
+    private val now = ZonedDateTime.of(2022, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC)
+    private val firstAddress = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val secondAddress = "0x8f52b0cc50967fc59c6289f8fdb3e356edeebd23"
+
+    private lateinit var userChangeRepository: UserChangeRepository
+    private lateinit var userResponseRepository: UserResponseRepository
+    private lateinit var timeProvider: ZonedDateTimeProvider
+    private lateinit var scheduler: ManualFixedScheduler
+    private lateinit var observer: ServerCallStreamObserver<UserChangeResponse>
+    private lateinit var userChangeFeed: UserChangeFeed
+
+    @BeforeEach
+    fun init() {
+        userChangeRepository = mock()
+        userResponseRepository = mock()
+        timeProvider = mock { given(it.getZonedDateTime()).willReturn(now) }
+        scheduler = ManualFixedScheduler()
+        observer = mock { given(it.isReady).willReturn(true) }
+        val schedulerProvider = mock<ScheduledExecutorServiceProvider> {
+            given(it.newSingleThreadScheduledExecutor(UserChangeFeed.WATCH_NAME)).willReturn(scheduler)
+        }
+        userChangeFeed = UserChangeFeed(
+            userChangeRepository,
+            userResponseRepository,
+            timeProvider,
+            ApplicationProperties().apply { grpc.watchBatchSize = 2 },
+            SimpleMeterRegistry(),
+            schedulerProvider
+        )
+    }
+
+    @Test
+    fun mustSendChangesAfterCursor() {
+        suppose("Changes exist after the cursor") {
+            given(userChangeRepository.existsById(1L)).willReturn(true)
+            given(userChangeRepository.findLatestId()).willReturn(4L)
+            given(userChangeRepository.findAfter(1L, 2))
+                .willReturn(listOf(createChange(2L, firstAddress), createChange(3L, secondAddress)))
+            given(userChangeRepository.findAfter(3L, 2))
+                .willReturn(listOf(createChange(4L, firstAddress)))
+            given(userResponseRepository.findAllByAddresses(any(), any()))
+                .willReturn(listOf(createUser(firstAddress), createUser(secondAddress)))
+        }
+
+        verify("Changes are sent in order with current users") {
+            userChangeFeed.watch(observer, 1L, UserResponseFields.ALL)
+            scheduler.execute()
+            val responses = argumentCaptor<UserChangeResponse>()
+            Mockito.verify(observer, times(3)).onNext(responses.capture())
+            assertThat(responses.allValues.map { it.cursor }).containsExactly(2L, 3L, 4L)
+            assertThat(responses.allValues.map { it.user.address })
+                .containsExactly(firstAddress, secondAddress, firstAddress)
+            assertThat(responses.firstValue.type).isEqualTo(UserChangeResponse.Type.KYC_CONNECTED)
+            Mockito.verify(userChangeRepository).findAfter(1L, 2)
+        }
+        verify("Sent changes are not sent again") {
+            scheduler.execute()
+            Mockito.verify(observer, times(3)).onNext(any())
+        }
+    }
+
+    @Test
+    fun mustWaitForClientToBeReady() {
+        suppose("Client is not ready and a change exists") {
+            given(observer.isReady).willReturn(false)
+            given(userChangeRepository.findLatestId()).willReturn(1L)
+            given(userChangeRepository.findAfter(eq(0L), any()))
+                .willReturn(listOf(createChange(1L, firstAddress)))
+            given(userResponseRepository.findAllByAddresses(any(), any()))
+                .willReturn(listOf(createUser(firstAddress)))
+        }
+
+        verify("Change is sent once the client is ready") {
+            userChangeFeed.watch(observer, 0L, UserResponseFields.ALL)
+            scheduler.execute()
+            Mockito.verify(observer, never()).onNext(any())
+
+            given(observer.isReady).willReturn(true)
+            scheduler.execute()
+            Mockito.verify(observer).onNext(any())
+        }
+    }
+
+    @Test
+    fun mustWaitForMissingChangeToCommit() {
+        suppose("Change after the cursor is not committed yet while a later one is") {
+            given(userChangeRepository.existsById(1L)).willReturn(true)
+            given(userChangeRepository.findLatestId()).willReturn(3L)
+            given(userChangeRepository.findAfter(1L, 2))
+                .willReturn(listOf(createChange(3L, firstAddress)))
+                .willReturn(listOf(createChange(2L, secondAddress), createChange(3L, firstAddress)))
+            given(userResponseRepository.findAllByAddresses(any(), any()))
+                .willReturn(listOf(createUser(firstAddress), createUser(secondAddress)))
+        }
+
+        verify("Changes are sent in order once the missing change is committed") {
+            userChangeFeed.watch(observer, 1L, UserResponseFields.ALL)
+            scheduler.execute()
+            Mockito.verify(observer, never()).onNext(any())
+
+            scheduler.execute()
+            val responses = argumentCaptor<UserChangeResponse>()
+            Mockito.verify(observer, times(2)).onNext(responses.capture())
+            assertThat(responses.allValues.map { it.cursor }).containsExactly(2L, 3L)
+        }
+    }
+
+    @Test
+    fun mustSkipMissingChangeAfterGapTimeout() {
+        suppose("Change after the cursor was rolled back") {
+            given(userChangeRepository.existsById(1L)).willReturn(true)
+            given(userChangeRepository.findLatestId()).willReturn(3L)
+            given(userChangeRepository.findAfter(1L, 2)).willReturn(listOf(createChange(3L, firstAddress)))
+            given(userResponseRepository.findAllByAddresses(any(), any()))
+                .willReturn(listOf(createUser(firstAddress)))
+        }
+
+        verify("Later change is sent only after the gap timeout") {
+            userChangeFeed.watch(observer, 1L, UserResponseFields.ALL)
+            scheduler.execute()
+            given(timeProvider.getZonedDateTime()).willReturn(now.plusSeconds(29L))
+            scheduler.execute()
+            Mockito.verify(observer, never()).onNext(any())
+
+            given(timeProvider.getZonedDateTime()).willReturn(now.plusSeconds(30L))
+            scheduler.execute()
+            val responses = argumentCaptor<UserChangeResponse>()
+            Mockito.verify(observer).onNext(responses.capture())
+            assertThat(responses.firstValue.cursor).isEqualTo(3L)
+        }
+    }
+
+    @Test
+    fun mustRejectCursorWhichIsNotRetained() {
+        suppose("Cursor is purged") {
+            given(userChangeRepository.existsById(5L)).willReturn(false)
+        }
+
+        verify("Call fails with out of range") {
+            userChangeFeed.watch(observer, 5L, UserResponseFields.ALL)
+            val error = argumentCaptor<Throwable>()
+            Mockito.verify(observer).onError(error.capture())
+            assertThat((error.firstValue as StatusRuntimeException).status.code).isEqualTo(Status.Code.OUT_OF_RANGE)
+            assertThat(userChangeFeed.size()).isZero
+        }
+    }
+
+    @Test
+    fun mustRemoveCancelledWatcher() {
+        verify("Watcher is removed on cancel") {
+            userChangeFeed.watch(observer, 0L, UserResponseFields.ALL)
+            assertThat(userChangeFeed.size()).isOne
+            val cancelHandler = argumentCaptor<Runnable>()
+            Mockito.verify(observer).setOnCancelHandler(cancelHandler.capture())
+            cancelHandler.firstValue.run()
+            assertThat(userChangeFeed.size()).isZero
+        }
+    }
+
+    @Test
+    fun mustKeepWatchersWhenPollFails() {
+        suppose("Outbox is not available") {
+            given(userChangeRepository.findLatestId()).willThrow(IllegalStateException("Unavailable"))
+        }
+
+        verify("Watcher is kept for the next poll") {
+            userChangeFeed.watch(observer, 0L, UserResponseFields.ALL)
+            scheduler.execute()
+            Mockito.verify(observer, never()).onError(any())
+            assertThat(userChangeFeed.size()).isOne
+        }
+    }
+
+    private fun createChange(id: Long, address: String) =
+        UserChange(id, address, UserChangeType.KYC_CONNECTED, now.minusMinutes(1L))
+
+    private fun createUser(address: String): UserResponse = UserResponse.newBuilder().setAddress(address).build()
+}
@@ -0,0 +1,100 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserChangeType
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserResponse
+import com.ampnet.identityservice.service.pojo.UserChangedEvent
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+
+class UserResponseCacheTest : TestBase() {
+
+    private val firstAddress = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val secondAddress = "0x8f52b0cc50967fc59c6289f8fdb3e356edeebd23"
+
+    private lateinit var userResponseRepository: UserResponseRepository
+    private lateinit var userResponseCache: UserResponseCache
+
+    @BeforeEach
+    fun init() {
+        userResponseRepository = mock()
+        val applicationProperties = ApplicationProperties()
+        val meterRegistry = SimpleMeterRegistry()
+        val userResponseLoader = UserResponseLoader(userResponseRepository, applicationProperties, meterRegistry)
+        userResponseCache = UserResponseCache(userResponseLoader, applicationProperties, meterRegistry)
+    }
+
+    @Test
+    fun mustLoadOnlyMissingUsers() {
+        suppose("Users exist") {
+            given(userResponseRepository.findAllByAddresses(listOf(firstAddress)))
+                .willReturn(listOf(createUser(firstAddress)))
+            given(userResponseRepository.findAllByAddresses(listOf(secondAddress)))
+                .willReturn(listOf(createUser(secondAddress)))
+        }
+
+        verify("Cached user is not loaded again") {
+            userResponseCache.getAll(listOf(firstAddress))
+            val users = userResponseCache.getAll(listOf(secondAddress, firstAddress, secondAddress))
+            assertThat(users.map { it.address }).containsExactly(secondAddress, firstAddress)
+            Mockito.verify(userResponseRepository, times(1)).findAllByAddresses(listOf(firstAddress))
+            Mockito.verify(userResponseRepository, times(1)).findAllByAddresses(listOf(secondAddress))
+        }
+    }
+
+    @Test
+    fun mustLoadChangedUser() {
+        suppose("User is cached and changed") {
+            given(userResponseRepository.findAllByAddresses(listOf(firstAddress)))
+                .willReturn(listOf(createUser(firstAddress, "old@mail.com")), listOf(createUser(firstAddress)))
+            userResponseCache.getAll(listOf(firstAddress))
+            userResponseCache.onUserChanged(UserChangedEvent(firstAddress, UserChangeType.EMAIL_UPDATED))
+        }
+
+        verify("Changed user is loaded again") {
+            val users = userResponseCache.getAll(listOf(firstAddress))
+            assertThat(users.map { it.email }).containsExactly("email@mail.com")
+        }
+    }
+
+    @Test
+    fun mustNotCacheUserLoadedDuringEviction() {
+        suppose("User changes while it is being loaded") {
+            given(userResponseRepository.findAllByAddresses(any(), any())).willAnswer {
+                userResponseCache.onUserChanged(UserChangedEvent(firstAddress, UserChangeType.EMAIL_UPDATED))
+                listOf(createUser(firstAddress))
+            }
+        }
+
+        verify("User is loaded on every call") {
+            userResponseCache.getAll(listOf(firstAddress))
+            userResponseCache.getAll(listOf(firstAddress))
+            Mockito.verify(userResponseRepository, times(2)).findAllByAddresses(any(), any())
+        }
+    }
+
+    @Test
+    fun mustNotCacheMissingUser() {
+        suppose("User does not exist") {
+            given(userResponseRepository.findAllByAddresses(any(), any())).willReturn(emptyList())
+        }
+
+        verify("Missing user is not returned") {
+            assertThat(userResponseCache.getAll(listOf(firstAddress))).isEmpty()
+            assertThat(userResponseCache.getAll(listOf(firstAddress))).isEmpty()
+            Mockito.verify(userResponseRepository, times(2)).findAllByAddresses(any(), any())
+        }
+    }
+
+    private fun createUser(address: String, email: String = "email@mail.com"): UserResponse =
+        UserResponse.newBuilder().setAddress(address).setEmail(email).build()
+}
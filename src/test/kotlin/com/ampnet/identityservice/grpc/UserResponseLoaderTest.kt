@@ -0,0 +1,102 @@
+package com.ampnet.identityservice.grpc
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import com.ampnet.identityservice.persistence.repository.UserResponseRepository
+import com.ampnet.identityservice.proto.UserResponse
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+
+class UserResponseLoaderTest : TestBase() {
+
+    private val addresses = (1..5).map { "0x0$it" }
+
+    private lateinit var userResponseRepository: UserResponseRepository
+    private lateinit var userResponseLoader: UserResponseLoader
+
+    @BeforeEach
+    fun init() {
+        userResponseRepository = mock()
+        val applicationProperties = ApplicationProperties().apply {
+            grpc.lookupChunkSize = 2
+            grpc.lookupParallelism = 2
+        }
+        userResponseLoader = UserResponseLoader(userResponseRepository, applicationProperties, SimpleMeterRegistry())
+    }
+
+    @AfterEach
+    fun destroy() {
+        userResponseLoader.destroy()
+    }
+
+    @Test
+    fun mustLoadUsersInChunks() {
+        suppose("Users exist") {
+            given(userResponseRepository.findAllByAddresses(any(), any())).willAnswer { invocation ->
+                invocation.getArgument<Collection<String>>(0).map { createUser(it) }
+            }
+        }
+
+        verify("All users are loaded in chunks") {
+            val users = userResponseLoader.load(addresses, UserResponseFields.ALL)
+            assertThat(users.keys).containsExactlyInAnyOrderElementsOf(addresses)
+            Mockito.verify(userResponseRepository, times(3)).findAllByAddresses(any(), any())
+            Mockito.verify(userResponseRepository).findAllByAddresses(listOf("0x05"))
+        }
+    }
+
+    @Test
+    fun mustFailWhenChunkFails() {
+        suppose("Database is not available") {
+            given(userResponseRepository.findAllByAddresses(any(), any()))
+                .willThrow(IllegalStateException("Unavailable"))
+        }
+
+        verify("Failure is propagated") {
+            assertThrows<IllegalStateException> { userResponseLoader.load(addresses, UserResponseFields.ALL) }
+        }
+    }
+
+    @Test
+    fun mustRejectLookupWhenQueueIsFull() {
+        val release = CountDownLatch(1)
+        val loader = UserResponseLoader(
+            userResponseRepository,
+            ApplicationProperties().apply {
+                grpc.lookupChunkSize = 2
+                grpc.lookupParallelism = 1
+                grpc.lookupQueueCapacity = 1
+            },
+            SimpleMeterRegistry()
+        )
+        suppose("Database is slow") {
+            given(userResponseRepository.findAllByAddresses(any(), any())).willAnswer {
+                release.await()
+                emptyList<UserResponse>()
+            }
+        }
+
+        verify("Lookup which does not fit in the queue is rejected") {
+            try {
+                assertThrows<RejectedExecutionException> { loader.load(addresses, UserResponseFields.ALL) }
+            } finally {
+                release.countDown()
+                loader.destroy()
+            }
+        }
+    }
+
+    private fun createUser(address: String): UserResponse = UserResponse.newBuilder().setAddress(address).build()
+}
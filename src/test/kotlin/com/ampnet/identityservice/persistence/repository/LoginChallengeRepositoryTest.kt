@@ -0,0 +1,68 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.TestBase
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.junit.jupiter.SpringExtension
+import java.time.ZonedDateTime
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+class LoginChallengeRepositoryTest : TestBase() {
+
+    @Autowired
+    private lateinit var loginChallengeRepository: LoginChallengeRepository
+
+    private val key = "0xef678007d18427e6022059dbc264f27507cd1ffc"
+    private val now = ZonedDateTime.now()
+
+    @BeforeEach
+    fun init() {
+        loginChallengeRepository.deleteAll()
+    }
+
+    @Test
+    fun mustConsumeChallengeOnlyOnce() {
+        suppose("Challenge is stored") {
+            loginChallengeRepository.upsert(key, "payload", now.plusMinutes(10))
+        }
+
+        verify("Challenge is taken only once") {
+            assertThat(loginChallengeRepository.take(key, now)).isEqualTo("payload")
+            assertThat(loginChallengeRepository.take(key, now)).isNull()
+        }
+    }
+
+    @Test
+    fun mustReplaceChallengeForSameKey() {
+        suppose("Challenge is issued twice for the same key") {
+            loginChallengeRepository.upsert(key, "old-payload", now.plusMinutes(10))
+            loginChallengeRepository.upsert(key, "new-payload", now.plusMinutes(10))
+        }
+
+        verify("Only the latest challenge is taken") {
+            assertThat(loginChallengeRepository.take(key, now)).isEqualTo("new-payload")
+            assertThat(loginChallengeRepository.take(key, now)).isNull()
+        }
+    }
+
+    @Test
+    fun mustDeleteExpiredChallenges() {
+        suppose("There is an expired and a valid challenge") {
+            loginChallengeRepository.upsert("expired", "payload", now.minusMinutes(1))
+            loginChallengeRepository.upsert(key, "payload", now.plusMinutes(10))
+        }
+
+        verify("Only expired challenge is deleted") {
+            assertThat(loginChallengeRepository.take("expired", now)).isNull()
+            assertThat(loginChallengeRepository.deleteExpired(now)).isEqualTo(1)
+            assertThat(loginChallengeRepository.take(key, now)).isEqualTo("payload")
+        }
+    }
+}
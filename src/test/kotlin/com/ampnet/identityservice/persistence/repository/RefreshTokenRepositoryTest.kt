@@ -0,0 +1,111 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.RefreshToken
+import com.ampnet.identityservice.persistence.model.UserChangeType
+import com.ampnet.identityservice.service.impl.RefreshTokenStore
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.junit.jupiter.SpringExtension
+import java.time.Duration
+import java.time.ZonedDateTime
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+class RefreshTokenRepositoryTest : TestBase() {
+
+    @Autowired
+    private lateinit var refreshTokenRepository: RefreshTokenRepository
+
+    @Autowired
+    private lateinit var userRepository: UserRepository
+
+    @Autowired
+    private lateinit var userChangeRepository: UserChangeRepository
+
+    private val now = ZonedDateTime.now()
+
+    @BeforeEach
+    fun init() {
+        refreshTokenRepository.deleteAll()
+        userRepository.deleteAll()
+        userChangeRepository.deleteAll()
+    }
+
+    @Test
+    fun mustCreateUserAndReplaceToken() {
+        val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+        suppose("User logged in twice") {
+            assertThat(refreshTokenRepository.replaceForUser(address, RefreshTokenStore.hash("first"), now)).isTrue
+            assertThat(refreshTokenRepository.replaceForUser(address, RefreshTokenStore.hash("second"), now)).isFalse
+        }
+
+        verify("User is created once and only the latest token is kept") {
+            assertThat(userRepository.findByAddress(address)).isNotNull
+            assertThat(refreshTokenRepository.findByTokenHash(RefreshTokenStore.hash("first"))).isNull()
+            assertThat(refreshTokenRepository.findByTokenHash(RefreshTokenStore.hash("second"))?.userAddress)
+                .isEqualTo(address)
+        }
+        verify("User creation is recorded once") {
+            assertThat(userChangeRepository.findAll().map { it.address to it.type })
+                .containsExactly(address to UserChangeType.CREATED)
+        }
+    }
+
+    @Test
+    fun mustFindTokenByHash() {
+        suppose("Refresh token is stored") {
+            createRefreshToken("0x9a72ad187229e9338c7f21e019544947fb25d473", "token", now)
+        }
+
+        verify("Token is found by its hash") {
+            val refreshToken = refreshTokenRepository.findByTokenHash(RefreshTokenStore.hash("token"))
+            assertThat(refreshToken?.userAddress).isEqualTo("0x9a72ad187229e9338c7f21e019544947fb25d473")
+            assertThat(refreshTokenRepository.findByTokenHash(RefreshTokenStore.hash("other"))).isNull()
+        }
+    }
+
+    @Test
+    fun mustDeleteOldTokensInBatches() {
+        suppose("There are three old tokens and one new") {
+            (1..3).forEach { createRefreshToken("0x$it", "old-$it", now.minusDays(100)) }
+            createRefreshToken("0x4", "new", now)
+        }
+
+        verify("Old tokens are deleted in bounded batches") {
+            val createdBefore = now.minusDays(90)
+            assertThat(refreshTokenRepository.deleteCreatedBefore(createdBefore, 2)).isEqualTo(2)
+            assertThat(refreshTokenRepository.deleteCreatedBefore(createdBefore, 2)).isEqualTo(1)
+            assertThat(refreshTokenRepository.deleteCreatedBefore(createdBefore, 2)).isEqualTo(0)
+            assertThat(refreshTokenRepository.findAll().map { it.userAddress }).containsExactly("0x4")
+        }
+    }
+
+    @Test
+    fun mustNotFindTokenDeletedThroughRepositoryAfterCacheTtl() {
+        val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+        val applicationProperties = ApplicationProperties().apply { jwt.refreshTokenCacheTtl = Duration.ofMillis(100L) }
+        val refreshTokenStore = RefreshTokenStore(refreshTokenRepository, applicationProperties, SimpleMeterRegistry())
+        suppose("Token is found and then deleted by another instance") {
+            refreshTokenStore.replaceForUser(address, "token", now)
+            assertThat(refreshTokenStore.findByToken("token")?.userAddress).isEqualTo(address)
+            refreshTokenRepository.deleteByUserAddress(address)
+        }
+
+        verify("Deleted token is not found once the cache entry expires") {
+            Thread.sleep(200L)
+            assertThat(refreshTokenStore.findByToken("token")).isNull()
+        }
+    }
+
+    private fun createRefreshToken(address: String, token: String, createdAt: ZonedDateTime) =
+        refreshTokenRepository.save(RefreshToken(0, address, RefreshTokenStore.hash(token), createdAt))
+}
\ No newline at end of file
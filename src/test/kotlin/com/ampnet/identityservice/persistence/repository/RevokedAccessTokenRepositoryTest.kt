@@ -0,0 +1,74 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.persistence.model.RevokedAccessToken
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.junit.jupiter.SpringExtension
+import java.time.Duration
+import java.time.ZonedDateTime
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+class RevokedAccessTokenRepositoryTest : TestBase() {
+
+    @Autowired
+    private lateinit var revokedAccessTokenRepository: RevokedAccessTokenRepository
+
+    private val now = ZonedDateTime.now()
+
+    @BeforeEach
+    fun init() {
+        revokedAccessTokenRepository.deleteAll()
+    }
+
+    @Test
+    fun mustSetRevocationTimeOfInsertedToken() {
+        suppose("Token is revoked") {
+            assertThat(revokedAccessTokenRepository.insert("token", now.plusHours(1L))).isOne
+        }
+
+        verify("Revocation time is set by the database and token is revoked only once") {
+            assertThat(revokedAccessTokenRepository.insert("token", now.plusHours(1L))).isZero
+            val revoked = revokedAccessTokenRepository.findAll().single()
+            assertThat(revoked.revokedAt).isBetween(now.minusMinutes(1L), ZonedDateTime.now().plusMinutes(1L))
+        }
+    }
+
+    @Test
+    fun mustFindRevocationsWithinWindow() {
+        suppose("Old, recent and expired revocations exist") {
+            revokedAccessTokenRepository.saveAndFlush(
+                RevokedAccessToken(0, "old", now.plusHours(1L), now.minusMinutes(10L))
+            )
+            revokedAccessTokenRepository.insert("recent", now.plusHours(1L))
+            revokedAccessTokenRepository.insert("expired", now.minusMinutes(1L))
+        }
+
+        verify("Only unexpired revocations are found") {
+            assertThat(revokedAccessTokenRepository.findNotExpired().map { it.tokenId })
+                .containsExactlyInAnyOrder("old", "recent")
+            assertThat(revokedAccessTokenRepository.findRevokedWithin(Duration.ofMinutes(1L).toMillis()))
+                .extracting("tokenId").containsExactly("recent")
+        }
+    }
+
+    @Test
+    fun mustDeleteExpiredRevocations() {
+        suppose("Expired and valid revocations exist") {
+            revokedAccessTokenRepository.insert("valid", now.plusHours(1L))
+            revokedAccessTokenRepository.insert("expired", now.minusMinutes(1L))
+        }
+
+        verify("Only expired revocation is deleted") {
+            assertThat(revokedAccessTokenRepository.deleteExpired()).isOne
+            assertThat(revokedAccessTokenRepository.findAll().map { it.tokenId }).containsExactly("valid")
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.persistence.model.UserChange
+import com.ampnet.identityservice.persistence.model.UserChangeType
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.junit.jupiter.SpringExtension
+import java.time.Duration
+import java.time.ZonedDateTime
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+class UserChangeRepositoryTest : TestBase() {
+
+    @Autowired
+    private lateinit var userChangeRepository: UserChangeRepository
+
+    private val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val now = ZonedDateTime.now()
+
+    @BeforeEach
+    fun init() {
+        userChangeRepository.deleteAll()
+    }
+
+    @Test
+    fun mustFindChangesAfterCursor() {
+        lateinit var ids: List<Long>
+        suppose("Changes exist") {
+            ids = listOf(
+                UserChange(address, UserChangeType.CREATED, now.minusMinutes(3L)),
+                UserChange(address, UserChangeType.EMAIL_UPDATED, now.minusMinutes(2L)),
+                UserChange(address, UserChangeType.KYC_CONNECTED, now.minusMinutes(1L))
+            ).map { userChangeRepository.saveAndFlush(it).id }
+        }
+
+        verify("Changes are returned in order and limited") {
+            assertThat(userChangeRepository.findLatestId()).isEqualTo(ids.last())
+            assertThat(userChangeRepository.findAfter(ids[0], 10).map { it.id }).containsExactly(ids[1], ids[2])
+            assertThat(userChangeRepository.findAfter(0L, 2).map { it.type })
+                .containsExactly(UserChangeType.CREATED, UserChangeType.EMAIL_UPDATED)
+        }
+    }
+
+    @Test
+    fun mustSetCreationTimeOfInsertedChange() {
+        suppose("Change is inserted") {
+            userChangeRepository.insert(address, UserChangeType.EMAIL_UPDATED.name)
+        }
+
+        verify("Creation time is set by the database") {
+            val change = userChangeRepository.findAll().single()
+            assertThat(change.type).isEqualTo(UserChangeType.EMAIL_UPDATED)
+            assertThat(change.createdAt).isBetween(now.minusMinutes(1L), ZonedDateTime.now().plusMinutes(1L))
+        }
+    }
+
+    @Test
+    fun mustDeleteChangesOlderThanRetention() {
+        suppose("Old and new changes exist") {
+            userChangeRepository.saveAndFlush(UserChange(address, UserChangeType.CREATED, now.minusDays(8L)))
+            userChangeRepository.insert(address, UserChangeType.EMAIL_UPDATED.name)
+        }
+
+        verify("Only old changes are deleted") {
+            assertThat(userChangeRepository.deleteOlderThan(Duration.ofDays(7L).toMillis())).isOne
+            assertThat(userChangeRepository.findAll().map { it.type }).containsExactly(UserChangeType.EMAIL_UPDATED)
+        }
+    }
+
+    @Test
+    fun mustReturnZeroLatestIdWithoutChanges() {
+        verify("Latest id is zero") {
+            assertThat(userChangeRepository.findLatestId()).isZero
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ampnet.identityservice.persistence.repository
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.persistence.model.Document
+import com.ampnet.identityservice.persistence.model.User
+import com.ampnet.identityservice.persistence.model.UserInfo
+import com.ampnet.identityservice.persistence.model.UserResponseField
+import com.ampnet.identityservice.persistence.model.UserResponseFields
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.context.annotation.Import
+import org.springframework.test.context.junit.jupiter.SpringExtension
+import java.time.ZonedDateTime
+import java.util.UUID
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+@Import(UserResponseRepository::class)
+class UserResponseRepositoryTest : TestBase() {
+
+    @Autowired
+    private lateinit var userResponseRepository: UserResponseRepository
+
+    @Autowired
+    private lateinit var userRepository: UserRepository
+
+    @Autowired
+    private lateinit var userInfoRepository: UserInfoRepository
+
+    private val verifiedAddress = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val unverifiedAddress = "0x8f52b0cc50967fc59c6289f8fdb3e356edeebd23"
+    private val createdAt = ZonedDateTime.now()
+
+    @BeforeEach
+    fun init() {
+        userRepository.deleteAll()
+        userInfoRepository.deleteAll()
+    }
+
+    @Test
+    fun mustMapUsersWithAndWithoutUserInfo() {
+        suppose("Verified and unverified users exist") {
+            createUsers()
+        }
+
+        verify("Users are mapped into responses") {
+            val users = userResponseRepository
+                .findAllByAddresses(listOf(verifiedAddress, unverifiedAddress, "0xmissing"))
+                .associateBy { it.address }
+            assertThat(users).hasSize(2)
+            val verified = users.getValue(verifiedAddress)
+            assertThat(verified.email).isEqualTo("email@mail.com")
+            assertThat(verified.createdAt).isEqualTo(createdAt.toEpochSecond())
+            assertThat(verified.language).isEqualTo("en")
+            assertThat(verified.firstName).isEqualTo("first")
+            assertThat(verified.lastName).isEqualTo("last")
+            assertThat(verified.dateOfBirth).isEqualTo("1990-01-01")
+            assertThat(verified.personalNumber).isEqualTo("id-num")
+            assertThat(verified.documentNumber).isEqualTo("doc-num")
+            assertThat(verified.documentValidFrom).isEqualTo("2020-01-01")
+            assertThat(verified.documentValidUntil).isEqualTo("2030-01-01")
+            val unverified = users.getValue(unverifiedAddress)
+            assertThat(unverified.email).isEmpty()
+            assertThat(unverified.firstName).isEmpty()
+            assertThat(unverified.documentValidUntil).isEmpty()
+        }
+    }
+
+    @Test
+    fun mustMapOnlyRequestedFields() {
+        suppose("Verified user exists") {
+            createUsers()
+        }
+
+        verify("Only requested fields are set") {
+            val fields = UserResponseFields.fromPaths(listOf("email", "last_name"))
+            assertThat(fields.fields).containsExactly(
+                UserResponseField.ADDRESS, UserResponseField.EMAIL, UserResponseField.LAST_NAME
+            )
+            val user = userResponseRepository.findAllByAddresses(listOf(verifiedAddress), fields).single()
+            assertThat(user.address).isEqualTo(verifiedAddress)
+            assertThat(user.email).isEqualTo("email@mail.com")
+            assertThat(user.lastName).isEqualTo("last")
+            assertThat(user.createdAt).isZero
+            assertThat(user.firstName).isEmpty()
+        }
+    }
+
+    @Test
+    fun mustReadUserFieldsWithoutUserInfo() {
+        suppose("Verified user exists") {
+            createUsers()
+        }
+
+        verify("User fields are read") {
+            val fields = UserResponseFields.fromPaths(listOf("language"))
+            assertThat(fields.joinsUserInfo).isFalse
+            val user = userResponseRepository.findAllByAddresses(listOf(verifiedAddress), fields).single()
+            assertThat(user.language).isEqualTo("en")
+        }
+    }
+
+    @Test
+    fun mustReturnEmptyListForNoAddresses() {
+        verify("Nothing is returned") {
+            assertThat(userResponseRepository.findAllByAddresses(emptyList())).isEmpty()
+        }
+    }
+
+    private fun createUsers() {
+        val userInfo = userInfoRepository.saveAndFlush(
+            UserInfo(
+                UUID.randomUUID(), "session", "first", "last", "id-num", "1990-01-01",
+                Document("PASSPORT", "HR", "doc-num", "2030-01-01", "2020-01-01"),
+                null, null, createdAt, true, false
+            )
+        )
+        userRepository.saveAndFlush(User(verifiedAddress, "email@mail.com", userInfo.uuid, createdAt, "en"))
+        userRepository.saveAndFlush(User(unverifiedAddress, null, null, createdAt, null))
+    }
+}
@@ -0,0 +1,98 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.core.jwt.exception.TokenException
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.impl.AccessTokenDenylist
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.Mockito
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.springframework.security.authentication.BadCredentialsException
+import java.util.concurrent.TimeUnit
+
+class JwtAuthenticationProviderTest : TestBase() {
+
+    private val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val token = "header.payload.signature"
+
+    private lateinit var jwtTokenVerifier: JwtTokenVerifier
+    private lateinit var accessTokenDenylist: AccessTokenDenylist
+    private lateinit var provider: JwtAuthenticationProvider
+
+    @BeforeEach
+    fun init() {
+        jwtTokenVerifier = mock()
+        accessTokenDenylist = mock()
+        provider = JwtAuthenticationProvider(
+            jwtTokenVerifier, accessTokenDenylist, ApplicationProperties(), SimpleMeterRegistry()
+        )
+    }
+
+    @Test
+    fun mustVerifyTokenOnlyOnce() {
+        suppose("Token is valid") {
+            given(jwtTokenVerifier.verify(token)).willReturn(createClaims(expiresInSeconds = 60))
+        }
+
+        verify("Repeated requests use the cached principal") {
+            repeat(3) {
+                val authentication = provider.authenticate(JwtAuthenticationToken(token))
+                assertThat(authentication.isAuthenticated).isTrue
+                assertThat(authentication.principal).isEqualTo(address)
+            }
+            Mockito.verify(jwtTokenVerifier, times(1)).verify(token)
+        }
+    }
+
+    @Test
+    fun mustNotCacheExpiredToken() {
+        suppose("Verifier returns claims which have already expired") {
+            given(jwtTokenVerifier.verify(token)).willReturn(createClaims(expiresInSeconds = -1))
+        }
+
+        verify("Token is verified on every request") {
+            provider.authenticate(JwtAuthenticationToken(token))
+            provider.authenticate(JwtAuthenticationToken(token))
+            Mockito.verify(jwtTokenVerifier, times(2)).verify(token)
+        }
+    }
+
+    @Test
+    fun mustNotCacheInvalidToken() {
+        suppose("Token is invalid") {
+            given(jwtTokenVerifier.verify(token)).willThrow(TokenException("Invalid signature"))
+        }
+
+        verify("Every request is rejected") {
+            repeat(2) {
+                assertThrows<BadCredentialsException> { provider.authenticate(JwtAuthenticationToken(token)) }
+            }
+            Mockito.verify(jwtTokenVerifier, times(2)).verify(token)
+        }
+    }
+
+    @Test
+    fun mustRejectRevokedCachedToken() {
+        suppose("Token is verified and cached") {
+            val claims = createClaims(expiresInSeconds = 60)
+            given(jwtTokenVerifier.verify(token)).willReturn(claims)
+            provider.authenticate(JwtAuthenticationToken(token))
+            given(accessTokenDenylist.isRevoked("jti", claims.expiresAt)).willReturn(true)
+        }
+
+        verify("Revoked token is rejected") {
+            assertThrows<BadCredentialsException> { provider.authenticate(JwtAuthenticationToken(token)) }
+        }
+    }
+
+    private fun createClaims(expiresInSeconds: Long): AccessTokenClaims {
+        val now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+        return AccessTokenClaims(address, now, now + expiresInSeconds, "jti")
+    }
+}
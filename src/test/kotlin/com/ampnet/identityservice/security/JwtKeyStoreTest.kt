@@ -0,0 +1,77 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.config.JwtKeyProperties
+import com.ampnet.identityservice.service.BufferedRandomProvider
+import com.ampnet.identityservice.service.CurrentZonedDateTimeProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import java.security.KeyPairGenerator
+import java.security.spec.ECGenParameterSpec
+import java.time.Instant
+import java.util.Base64
+
+class JwtKeyStoreTest : TestBase() {
+
+    private val now = Instant.now()
+    private val rsaKeyPair = KeyPairGenerator.getInstance("RSA").apply { initialize(2048) }.generateKeyPair()
+    private val ecKeyPair = KeyPairGenerator.getInstance("EC")
+        .apply { initialize(ECGenParameterSpec("secp256r1")) }
+        .generateKeyPair()
+
+    @Test
+    fun mustRotateToKeyOnceActive() {
+        verify("Scheduled key is published before it is used and retired key is dropped") {
+            val keyStore = JwtKeyStore(
+                properties(
+                    rotatedKey("next", now.plusSeconds(60)),
+                    rotatedKey("retired", now.minusSeconds(120), now.minusSeconds(60))
+                )
+            )
+            assertThat(keyStore.signingKey(now).keyId).isNotEqualTo("next")
+            assertThat(keyStore.signingKey(now.plusSeconds(61)).keyId).isEqualTo("next")
+            assertThat(keyStore.publishedKeys(now).map { it.keyId }).contains("next").doesNotContain("retired")
+            assertThat(keyStore.verificationKey("retired", JwtAlgorithm.ES256, now)).isNull()
+            assertThat(keyStore.verificationKey("next", JwtAlgorithm.ES256, now)).isNotNull
+        }
+    }
+
+    @Test
+    fun mustIdentifyConfiguredKeyByThumbprint() {
+        verify("Configured key without id gets a stable thumbprint") {
+            val first = JwtKeyStore(properties()).signingKey(now)
+            val second = JwtKeyStore(properties()).signingKey(now)
+            assertThat(first.keyId).isEqualTo(second.keyId).hasSize(43)
+            assertThat(first.jwk).containsKeys("kty", "n", "e")
+        }
+    }
+
+    @Test
+    fun mustVerifyTokensWithRotatedKey() {
+        verify("Token signed with the rotated key is verified by its kid") {
+            val keyStore = JwtKeyStore(properties(rotatedKey("rotated", now.minusSeconds(1))))
+            val token = JwtTokenSigner(keyStore, BufferedRandomProvider(), CurrentZonedDateTimeProvider())
+                .encode("0x9a72ad187229e9338c7f21e019544947fb25d473", 60_000L)
+            assertThat(JwtTokenVerifier(keyStore, CurrentZonedDateTimeProvider()).verify(token).address)
+                .isEqualTo("0x9a72ad187229e9338c7f21e019544947fb25d473")
+        }
+    }
+
+    private fun properties(vararg keys: JwtKeyProperties) = ApplicationProperties().apply {
+        jwt.privateKey = encode(rsaKeyPair.private.encoded)
+        jwt.publicKey = encode(rsaKeyPair.public.encoded)
+        jwt.keys = keys.toMutableList()
+    }
+
+    private fun rotatedKey(keyId: String, activeFrom: Instant, retireAt: Instant? = null) = JwtKeyProperties().apply {
+        this.keyId = keyId
+        algorithm = JwtAlgorithm.ES256
+        privateKey = encode(ecKeyPair.private.encoded)
+        publicKey = encode(ecKeyPair.public.encoded)
+        this.activeFrom = activeFrom
+        this.retireAt = retireAt
+    }
+
+    private fun encode(key: ByteArray): String = Base64.getEncoder().encodeToString(key)
+}
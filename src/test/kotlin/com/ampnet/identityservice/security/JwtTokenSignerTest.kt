@@ -0,0 +1,128 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.core.jwt.exception.TokenException
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.BufferedRandomProvider
+import com.ampnet.identityservice.service.CurrentZonedDateTimeProvider
+import com.ampnet.identityservice.service.ZonedDateTimeProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import java.security.KeyPairGenerator
+import java.security.spec.ECGenParameterSpec
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+import java.util.Base64
+
+class JwtTokenSignerTest : TestBase() {
+
+    private val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val validity = 60_000L
+    private val applicationProperties = ApplicationProperties().apply {
+        val rsaKeyPair = KeyPairGenerator.getInstance("RSA").apply { initialize(2048) }.generateKeyPair()
+        val ecKeyPair = KeyPairGenerator.getInstance("EC")
+            .apply { initialize(ECGenParameterSpec("secp256r1")) }
+            .generateKeyPair()
+        jwt.privateKey = Base64.getEncoder().encodeToString(rsaKeyPair.private.encoded)
+        jwt.publicKey = Base64.getEncoder().encodeToString(rsaKeyPair.public.encoded)
+        jwt.ecPrivateKey = Base64.getEncoder().encodeToString(ecKeyPair.private.encoded)
+        jwt.ecPublicKey = Base64.getEncoder().encodeToString(ecKeyPair.public.encoded)
+    }
+    private val timeProvider = CurrentZonedDateTimeProvider()
+    private val verifier = JwtTokenVerifier(JwtKeyStore(applicationProperties), timeProvider)
+
+    @Test
+    fun mustVerifyRs256Token() {
+        verify("RS256 token is verified") {
+            val token = createSigner(JwtAlgorithm.RS256).encode(address, validity)
+            val claims = verifier.verify(token)
+            assertThat(claims.address).isEqualTo(address)
+            assertThat(claims.expiresAt - claims.issuedAt).isEqualTo(validity / 1000)
+            assertThat(claims.id).isNotBlank
+        }
+    }
+
+    @Test
+    fun mustVerifyEs256Token() {
+        verify("ES256 token is verified") {
+            val keyStore = createKeyStore(JwtAlgorithm.ES256, "key-1")
+            val token = JwtTokenSigner(keyStore, BufferedRandomProvider(), timeProvider).encode(address, validity)
+            assertThat(JwtTokenVerifier(keyStore, timeProvider).verify(token).address).isEqualTo(address)
+        }
+    }
+
+    @Test
+    fun mustCarryKycClaims() {
+        verify("KYC claims are read from the token") {
+            val kyc = KycClaims(true, "2030-01-01", "en")
+            val token = createSigner(JwtAlgorithm.RS256).encode(address, validity, kyc.toMap())
+            assertThat(verifier.verify(token).kyc).isEqualTo(kyc)
+        }
+    }
+
+    @Test
+    fun mustRejectTamperedToken() {
+        verify("Token with changed claims is rejected") {
+            val parts = createSigner(JwtAlgorithm.ES256).encode(address, validity).split('.')
+            val claims = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"address\":\"0x8f52b0cc50967fc59c6289f8fdb3e356edeebd23\",\"exp\":1}".toByteArray())
+            assertThrows<TokenException> { verifier.verify("${parts[0]}.$claims.${parts[2]}") }
+        }
+    }
+
+    @Test
+    fun mustRejectExpiredToken() {
+        verify("Expired token is rejected") {
+            val token = createSigner(JwtAlgorithm.RS256).encode(address, -validity)
+            assertThrows<TokenException> { verifier.verify(token) }
+        }
+    }
+
+    @Test
+    fun mustUseProvidedTimeForIssuanceAndExpiry() {
+        val now = ZonedDateTime.of(2022, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC)
+        val clock = mock<ZonedDateTimeProvider> { given(it.getZonedDateTime()).willReturn(now) }
+        val keyStore = createKeyStore(JwtAlgorithm.RS256)
+        val token = JwtTokenSigner(keyStore, BufferedRandomProvider(), clock).encode(address, validity)
+
+        verify("Token is issued at the provided time") {
+            val claims = JwtTokenVerifier(keyStore, clock).verify(token)
+            assertThat(claims.issuedAt).isEqualTo(now.toEpochSecond())
+            assertThat(claims.expiresAt).isEqualTo(now.plusMinutes(1).toEpochSecond())
+        }
+        verify("Token is rejected once the provided time passes its expiry") {
+            given(clock.getZonedDateTime()).willReturn(now.plusMinutes(1))
+            assertThrows<TokenException> { JwtTokenVerifier(keyStore, clock).verify(token) }
+        }
+    }
+
+    @Test
+    fun mustRejectEs256TokenWithoutConfiguredKey() {
+        verify("ES256 token is rejected when only RS256 key is configured") {
+            val token = createSigner(JwtAlgorithm.ES256).encode(address, validity)
+            val rsaOnly = ApplicationProperties().apply {
+                jwt.publicKey = applicationProperties.jwt.publicKey
+                jwt.privateKey = applicationProperties.jwt.privateKey
+            }
+            assertThrows<TokenException> { JwtTokenVerifier(JwtKeyStore(rsaOnly), timeProvider).verify(token) }
+        }
+    }
+
+    private fun createSigner(algorithm: JwtAlgorithm): JwtTokenSigner =
+        JwtTokenSigner(createKeyStore(algorithm), BufferedRandomProvider(), timeProvider)
+
+    private fun createKeyStore(algorithm: JwtAlgorithm, keyId: String = ""): JwtKeyStore {
+        val properties = ApplicationProperties().apply {
+            jwt.privateKey = applicationProperties.jwt.privateKey
+            jwt.publicKey = applicationProperties.jwt.publicKey
+            jwt.ecPrivateKey = applicationProperties.jwt.ecPrivateKey
+            jwt.ecPublicKey = applicationProperties.jwt.ecPublicKey
+            jwt.algorithm = algorithm
+            jwt.keyId = keyId
+        }
+        return JwtKeyStore(properties)
+    }
+}
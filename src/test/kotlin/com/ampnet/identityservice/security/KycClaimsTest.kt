@@ -0,0 +1,39 @@
+package com.ampnet.identityservice.security
+
+import com.ampnet.identityservice.persistence.model.UserClaimsView
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import java.time.LocalDate
+
+class KycClaimsTest {
+
+    private val today = LocalDate.of(2022, 1, 20)
+
+    @Test
+    fun mustBeVerifiedWithValidDocument() {
+        val claims = KycClaims.from(View(userInfoUuid = "uuid", documentValidUntil = "2022-01-20"), today)
+        assertThat(claims).isEqualTo(KycClaims(true, "2022-01-20", "en"))
+        assertThat(claims.toMap()).containsEntry(KycClaims.VERIFIED, true)
+    }
+
+    @Test
+    fun mustNotBeVerifiedWithoutUserInfo() {
+        assertThat(KycClaims.from(View(), today).verified).isFalse
+    }
+
+    @Test
+    fun mustNotBeVerifiedWithExpiredDocumentOrDeactivatedUserInfo() {
+        assertThat(KycClaims.from(View(userInfoUuid = "uuid", documentValidUntil = "2022-01-19"), today).verified)
+            .isFalse
+        assertThat(KycClaims.from(View(userInfoUuid = "uuid", documentValidUntil = "invalid"), today).verified)
+            .isFalse
+        assertThat(KycClaims.from(View(userInfoUuid = "uuid", deactivated = true), today).verified).isFalse
+    }
+
+    private data class View(
+        override val language: String? = "en",
+        override val userInfoUuid: String? = null,
+        override val deactivated: Boolean? = false,
+        override val documentValidUntil: String? = null
+    ) : UserClaimsView
+}
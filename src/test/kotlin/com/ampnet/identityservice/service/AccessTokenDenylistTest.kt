@@ -0,0 +1,122 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.ManualFixedScheduler
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.RevokedAccessToken
+import com.ampnet.identityservice.persistence.repository.RevokedAccessTokenRepository
+import com.ampnet.identityservice.service.impl.AccessTokenDenylist
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import java.time.Duration
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+
+class AccessTokenDenylistTest : TestBase() {
+
+    private val tokenId = "nTm0PzjxZTpPvyS4aQXl9g"
+    private val now = ZonedDateTime.of(2022, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC)
+
+    private lateinit var revokedAccessTokenRepository: RevokedAccessTokenRepository
+    private lateinit var timeProvider: ZonedDateTimeProvider
+    private lateinit var scheduler: ManualFixedScheduler
+    private lateinit var accessTokenDenylist: AccessTokenDenylist
+
+    @BeforeEach
+    fun init() {
+        revokedAccessTokenRepository = mock()
+        timeProvider = mock { given(it.getZonedDateTime()).willReturn(now) }
+        scheduler = ManualFixedScheduler()
+        val schedulerProvider = mock<ScheduledExecutorServiceProvider> {
+            given(it.newSingleThreadScheduledExecutor(AccessTokenDenylist.SYNC_NAME)).willReturn(scheduler)
+        }
+        accessTokenDenylist = AccessTokenDenylist(
+            revokedAccessTokenRepository,
+            timeProvider,
+            ApplicationProperties(),
+            SimpleMeterRegistry(),
+            schedulerProvider
+        )
+    }
+
+    @Test
+    fun mustRevokeToken() {
+        val expiresAt = now.plusHours(1).toEpochSecond()
+
+        verify("Revoked token is stored and rejected") {
+            accessTokenDenylist.revoke(tokenId, expiresAt)
+            Mockito.verify(revokedAccessTokenRepository).insert(eq(tokenId), any())
+            assertThat(accessTokenDenylist.isRevoked(tokenId, expiresAt)).isTrue
+        }
+        verify("Other tokens are not revoked") {
+            assertThat(accessTokenDenylist.isRevoked("other", expiresAt)).isFalse
+        }
+    }
+
+    @Test
+    fun mustIgnoreExpiredToken() {
+        val expiresAt = now.minusMinutes(1).toEpochSecond()
+
+        verify("Expired token is not stored") {
+            accessTokenDenylist.revoke(tokenId, expiresAt)
+            Mockito.verify(revokedAccessTokenRepository, never()).insert(any(), any())
+            assertThat(accessTokenDenylist.size()).isZero
+        }
+    }
+
+    @Test
+    fun mustLoadRevocationsFromOtherNodes() {
+        suppose("Other node revoked a token") {
+            given(revokedAccessTokenRepository.findNotExpired())
+                .willReturn(listOf(RevokedAccessToken(1, tokenId, now.plusHours(1), now)))
+        }
+
+        verify("Token is revoked after sync") {
+            scheduler.execute()
+            assertThat(accessTokenDenylist.isRevoked(tokenId, now.plusHours(1).toEpochSecond())).isTrue
+        }
+    }
+
+    @Test
+    fun mustLoadRevocationsSincePreviousSyncWithOverlap() {
+        suppose("Denylist was synced") {
+            scheduler.execute()
+        }
+        suppose("Other node revoked a token after the sync") {
+            given(timeProvider.getZonedDateTime()).willReturn(now.plusSeconds(10L))
+            given(revokedAccessTokenRepository.findRevokedWithin(Duration.ofSeconds(70L).toMillis()))
+                .willReturn(listOf(RevokedAccessToken(2, tokenId, now.plusHours(1), now.plusSeconds(5L))))
+        }
+
+        verify("Revocations are loaded for the elapsed time plus the overlap") {
+            scheduler.execute()
+            assertThat(accessTokenDenylist.isRevoked(tokenId, now.plusHours(1).toEpochSecond())).isTrue
+            Mockito.verify(revokedAccessTokenRepository).findNotExpired()
+        }
+    }
+
+    @Test
+    fun mustDropExpiredRevocations() {
+        suppose("Token is revoked") {
+            accessTokenDenylist.revoke(tokenId, now.plusMinutes(1).toEpochSecond())
+        }
+        suppose("Token has expired") {
+            given(timeProvider.getZonedDateTime()).willReturn(now.plusHours(1))
+        }
+
+        verify("Revocation is dropped on sync") {
+            scheduler.execute()
+            assertThat(accessTokenDenylist.size()).isZero
+            assertThat(accessTokenDenylist.isRevoked(tokenId, now.plusMinutes(1).toEpochSecond())).isFalse
+            Mockito.verify(revokedAccessTokenRepository).deleteExpired()
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.impl.InMemoryChallengeStore
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.time.Duration
+
+class ChallengeStoreTest : TestBase() {
+
+    private val key = "0xef678007d18427e6022059dbc264f27507cd1ffc"
+    private lateinit var applicationProperties: ApplicationProperties
+    private lateinit var meterRegistry: SimpleMeterRegistry
+
+    @BeforeEach
+    fun init() {
+        applicationProperties = ApplicationProperties()
+        meterRegistry = SimpleMeterRegistry()
+    }
+
+    @Test
+    fun mustConsumeChallengeOnlyOnce() {
+        val challengeStore = InMemoryChallengeStore(applicationProperties, meterRegistry)
+
+        suppose("Challenge is stored") {
+            challengeStore.put(key, "payload")
+        }
+
+        verify("Challenge can be taken only once") {
+            assertThat(challengeStore.take(key)).isEqualTo("payload")
+            assertThat(challengeStore.take(key)).isNull()
+        }
+    }
+
+    @Test
+    fun mustNotConsumeReplacedChallenge() {
+        val challengeStore = InMemoryChallengeStore(applicationProperties, meterRegistry)
+
+        suppose("Challenge is replaced with a new one") {
+            challengeStore.put(key, "old-payload")
+            challengeStore.put(key, "new-payload")
+        }
+
+        verify("Only the new challenge is taken") {
+            assertThat(challengeStore.take(key)).isEqualTo("new-payload")
+            assertThat(challengeStore.take(key)).isNull()
+        }
+    }
+
+    @Test
+    fun mustExpireChallenge() {
+        applicationProperties.challenge.ttl = Duration.ZERO
+        val challengeStore = InMemoryChallengeStore(applicationProperties, meterRegistry)
+
+        suppose("Challenge is stored") {
+            challengeStore.put(key, "payload")
+        }
+
+        verify("Expired challenge is not returned") {
+            assertThat(challengeStore.take(key)).isNull()
+        }
+    }
+
+    @Test
+    fun mustEvictChallengesOverCapacity() {
+        applicationProperties.challenge.maxEntries = 10L
+        val challengeStore = InMemoryChallengeStore(applicationProperties, meterRegistry)
+
+        suppose("More challenges are issued than the store can hold") {
+            (1..100).forEach { challengeStore.put("key-$it", "payload-$it") }
+        }
+
+        verify("Store is bounded") {
+            assertThat(meterRegistry.get("auth.challenge.size").gauge().value()).isLessThanOrEqualTo(10.0)
+            assertThat(meterRegistry.get("auth.challenge.evictions").tag("cause", "size").counter().count())
+                .isGreaterThanOrEqualTo(90.0)
+        }
+    }
+}
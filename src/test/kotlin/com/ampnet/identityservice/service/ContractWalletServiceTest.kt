@@ -0,0 +1,171 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.blockchain.BlockchainService
+import com.ampnet.identityservice.blockchain.properties.Chain
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.service.impl.ContractWalletService
+import com.ampnet.identityservice.util.ChainId
+import com.ampnet.identityservice.util.ContractAddress
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+
+class ContractWalletServiceTest : TestBase() {
+
+    private val chainId = Chain.MATIC_MAIN.id
+    private val address = ContractAddress("0x6cf77b38c601c8c93271a9ea27ca4a3209b67ff3")
+    private val signature = "0x1234"
+    private val messageHash = ByteArray(32) { it.toByte() }
+
+    private lateinit var blockchainService: BlockchainService
+    private lateinit var contractWalletService: ContractWalletService
+
+    @BeforeEach
+    fun init() {
+        blockchainService = mock()
+        contractWalletService = ContractWalletService(blockchainService, ApplicationProperties(), SimpleMeterRegistry())
+    }
+
+    @Test
+    fun mustCacheContractCode() {
+        suppose("Address has code deployed") {
+            given(blockchainService.getCode(chainId.mockito(), address.mockito())).willReturn("0x6080604052")
+        }
+
+        verify("Code is fetched only once") {
+            assertThat(contractWalletService.isContract(chainId, address)).isTrue
+            assertThat(contractWalletService.isContract(chainId, address)).isTrue
+            Mockito.verify(blockchainService, times(1)).getCode(chainId.mockito(), address.mockito())
+        }
+    }
+
+    @Test
+    fun mustNotTreatAddressWithoutCodeAsContract() {
+        suppose("Address has no code deployed") {
+            given(blockchainService.getCode(chainId.mockito(), address.mockito())).willReturn("0x")
+        }
+
+        verify("Address is not a contract") {
+            assertThat(contractWalletService.isContract(chainId, address)).isFalse
+        }
+    }
+
+    @Test
+    fun mustNotCacheFailedCodeLookup() {
+        suppose("Blockchain call fails") {
+            given(blockchainService.getCode(chainId.mockito(), address.mockito())).willReturn(null)
+        }
+
+        verify("Code is fetched again") {
+            assertThat(contractWalletService.isContract(chainId, address)).isFalse
+            assertThat(contractWalletService.isContract(chainId, address)).isFalse
+            Mockito.verify(blockchainService, times(2)).getCode(chainId.mockito(), address.mockito())
+        }
+    }
+
+    @Test
+    fun mustNotCallBlockchainForUnsupportedChain() {
+        verify("Address on unsupported chain is not a contract") {
+            assertThat(contractWalletService.isContract(ChainId(0L), address)).isFalse
+            Mockito.verify(blockchainService, never()).getCode(anyValueClass(ChainId(0L)), anyValueClass(address))
+        }
+    }
+
+    @Test
+    fun mustCacheValidSignature() {
+        suppose("Contract wallet accepts the signature") {
+            given(blockchainService.isSignatureValid(chainId.mockito(), address.mockito(), any(), any()))
+                .willReturn(true)
+        }
+
+        verify("Contract is called only once") {
+            assertThat(contractWalletService.isSignatureValid(chainId, address, messageHash, signature)).isTrue
+            assertThat(contractWalletService.isSignatureValid(chainId, address, messageHash, signature)).isTrue
+            Mockito.verify(blockchainService, times(1))
+                .isSignatureValid(chainId.mockito(), address.mockito(), any(), any())
+        }
+    }
+
+    @Test
+    fun mustFindChainOnWhichContractAcceptsSignature() {
+        suppose("Address is a contract only on one chain and accepts the signature") {
+            given(blockchainService.getCode(chainId.mockito(), address.mockito())).willReturn("0x6080604052")
+            given(blockchainService.isSignatureValid(chainId.mockito(), address.mockito(), any(), any()))
+                .willReturn(true)
+        }
+
+        verify("Chain is found") {
+            assertThat(contractWalletService.findChainWithValidSignature(address, messageHash, signature))
+                .isEqualTo(chainId)
+        }
+    }
+
+    @Test
+    fun mustNotFindChainForRejectedSignature() {
+        suppose("Address is a contract only on one chain and rejects the signature") {
+            given(blockchainService.getCode(chainId.mockito(), address.mockito())).willReturn("0x6080604052")
+            given(blockchainService.isSignatureValid(chainId.mockito(), address.mockito(), any(), any()))
+                .willReturn(false)
+        }
+
+        verify("Chain is not found") {
+            assertThat(contractWalletService.findChainWithValidSignature(address, messageHash, signature)).isNull()
+        }
+    }
+
+    @Test
+    fun mustProbeOnlyConfiguredChains() {
+        val testnet = Chain.MATIC_TESTNET_MUMBAI.id
+        suppose("Address is a contract only on a testnet and accepts the signature") {
+            given(blockchainService.getCode(testnet.mockito(), address.mockito())).willReturn("0x6080604052")
+            given(blockchainService.isSignatureValid(testnet.mockito(), address.mockito(), any(), any()))
+                .willReturn(true)
+        }
+
+        verify("Testnet is not probed") {
+            assertThat(contractWalletService.findChainWithValidSignature(address, messageHash, signature)).isNull()
+            Mockito.verify(blockchainService, never()).getCode(testnet.mockito(), address.mockito())
+        }
+    }
+
+    @Test
+    fun mustRejectProbeWhenExecutorIsSaturated() {
+        val release = CountDownLatch(1)
+        suppose("Probe executor has a single thread and queue slot, and RPC calls block") {
+            val applicationProperties = ApplicationProperties().apply {
+                contractWallet.probeChains = listOf(137L, 1L, 5L)
+                contractWallet.probeThreads = 1
+                contractWallet.probeQueueCapacity = 1
+            }
+            contractWalletService = ContractWalletService(
+                blockchainService, applicationProperties, SimpleMeterRegistry()
+            )
+            given(blockchainService.getCode(anyValueClass(chainId), anyValueClass(address))).willAnswer {
+                release.await()
+                "0x"
+            }
+        }
+
+        verify("Probe is rejected") {
+            try {
+                assertThrows<RejectedExecutionException> {
+                    contractWalletService.findChainWithValidSignature(address, messageHash, signature)
+                }
+            } finally {
+                release.countDown()
+                contractWalletService.destroy()
+            }
+        }
+    }
+}
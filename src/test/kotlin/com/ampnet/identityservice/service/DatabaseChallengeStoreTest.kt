@@ -0,0 +1,73 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.ManualFixedScheduler
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.repository.LoginChallengeRepository
+import com.ampnet.identityservice.service.impl.DatabaseChallengeStore
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.ExtendWith
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.junit.jupiter.SpringExtension
+
+@DataJpaTest
+@ExtendWith(value = [SpringExtension::class])
+@AutoConfigureTestDatabase
+class DatabaseChallengeStoreTest : TestBase() {
+
+    @Autowired
+    private lateinit var loginChallengeRepository: LoginChallengeRepository
+
+    private val key = "0xef678007d18427e6022059dbc264f27507cd1ffc"
+
+    private lateinit var firstNode: DatabaseChallengeStore
+    private lateinit var secondNode: DatabaseChallengeStore
+
+    @BeforeEach
+    fun init() {
+        loginChallengeRepository.deleteAll()
+        firstNode = createStore()
+        secondNode = createStore()
+    }
+
+    @Test
+    fun mustVerifyChallengeIssuedByAnotherNode() {
+        suppose("Challenge is issued on the first node") {
+            firstNode.put(key, "payload")
+        }
+
+        verify("Challenge is taken on the second node only once") {
+            assertThat(secondNode.take(key)).isEqualTo("payload")
+            assertThat(firstNode.take(key)).isNull()
+        }
+    }
+
+    @Test
+    fun mustReadChallengeReplacedByAnotherNode() {
+        suppose("Challenge issued on the first node is replaced on the second node") {
+            firstNode.put(key, "first-payload")
+            secondNode.put(key, "second-payload")
+        }
+
+        verify("First node takes only the replacement") {
+            assertThat(firstNode.take(key)).isEqualTo("second-payload")
+            assertThat(firstNode.take(key)).isNull()
+        }
+    }
+
+    private fun createStore(): DatabaseChallengeStore {
+        val schedulerProvider = mock<ScheduledExecutorServiceProvider> {
+            given(it.newSingleThreadScheduledExecutor(DatabaseChallengeStore.CLEANUP_NAME))
+                .willReturn(ManualFixedScheduler())
+        }
+        return DatabaseChallengeStore(
+            loginChallengeRepository, CurrentZonedDateTimeProvider(), ApplicationProperties(), schedulerProvider
+        )
+    }
+}
@@ -0,0 +1,105 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequest
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.InvalidRequestException
+import com.ampnet.identityservice.service.impl.LoginServiceImpl
+import com.ampnet.identityservice.service.pojo.AccessAndRefreshToken
+import com.ampnet.identityservice.util.WalletAddress
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+
+class LoginServiceTest : TestBase() {
+
+    private val validAddress = WalletAddress("0x9a72ad187229e9338c7f21e019544947fb25d473")
+    private val failingAddress = WalletAddress("0x4a73ad187229e9338c7f21e019544947fb25d473")
+    private val invalidPayload = "invalid-payload"
+    private val token = AccessAndRefreshToken("access", 1000L, "refresh", 2000L)
+
+    private lateinit var verificationService: VerificationService
+    private lateinit var tokenService: TokenService
+    private lateinit var loginService: LoginServiceImpl
+
+    @BeforeEach
+    fun init() {
+        verificationService = mock()
+        tokenService = mock()
+        loginService = LoginServiceImpl(
+            verificationService,
+            tokenService,
+            TransactionTemplate(mock<PlatformTransactionManager>()),
+            ApplicationProperties()
+        )
+    }
+
+    @AfterEach
+    fun destroy() {
+        loginService.destroy()
+    }
+
+    @Test
+    fun mustReturnErrorOnlyForItemWhichFailedUnexpectedly() {
+        suppose("Verification of one address fails with an unexpected exception") {
+            given(verificationService.verifyPayload(failingAddress.mockito(), any(), anyOrNull(), anyOrNull()))
+                .willThrow(IllegalStateException("Unexpected failure"))
+        }
+        suppose("Token service generates token for verified address") {
+            given(tokenService.generateAccessAndRefreshForUser(validAddress.mockito())).willReturn(token)
+        }
+
+        verify("Valid address gets token and failed address gets error code") {
+            val results = loginService.loginBatch(
+                listOf(
+                    AuthorizationRequest(validAddress.value, "signed-payload", null),
+                    AuthorizationRequest(failingAddress.value, "signed-payload", null)
+                )
+            )
+            assertThat(results).hasSize(2)
+            assertThat(results[0].address).isEqualTo(validAddress)
+            assertThat(results[0].token).isEqualTo(token)
+            assertThat(results[0].errorCode).isNull()
+            assertThat(results[1].address).isEqualTo(failingAddress)
+            assertThat(results[1].token).isNull()
+            assertThat(results[1].errorCode).isEqualTo(ErrorCode.AUTH_VERIFICATION_FAILED)
+            assertThat(results[1].message).isEqualTo("Unexpected failure")
+        }
+    }
+
+    @Test
+    fun mustNotReturnTokenForFailedItemOfVerifiedAddress() {
+        suppose("Verification fails for the invalid signature of the address") {
+            val exception = InvalidRequestException(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Signature is invalid")
+            given(
+                verificationService.verifyPayload(validAddress.mockito(), eq(invalidPayload), anyOrNull(), anyOrNull())
+            ).willThrow(exception)
+        }
+        suppose("Token service generates token for verified address") {
+            given(tokenService.generateAccessAndRefreshForUser(validAddress.mockito())).willReturn(token)
+        }
+
+        verify("Only the item with the valid signature gets the token") {
+            val results = loginService.loginBatch(
+                listOf(
+                    AuthorizationRequest(validAddress.value, "signed-payload", null),
+                    AuthorizationRequest(validAddress.value, invalidPayload, null)
+                )
+            )
+            assertThat(results).hasSize(2)
+            assertThat(results[0].token).isEqualTo(token)
+            assertThat(results[0].errorCode).isNull()
+            assertThat(results[1].token).isNull()
+            assertThat(results[1].errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+        }
+    }
+}
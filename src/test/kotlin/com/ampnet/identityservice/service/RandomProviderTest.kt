@@ -0,0 +1,30 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.TestBase
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+class RandomProviderTest : TestBase() {
+
+    private val randomProvider = BufferedRandomProvider()
+
+    @Test
+    fun mustGenerateUrlSafeTokens() {
+        verify("Tokens have requested length and URL-safe characters") {
+            val tokens = (1..100).map { randomProvider.getToken(128) }
+            tokens.forEach { assertThat(it).hasSize(128).matches("[A-Za-z0-9_-]+") }
+            assertThat(tokens.toSet()).hasSize(tokens.size)
+            assertThat(randomProvider.getToken(7)).hasSize(7)
+        }
+    }
+
+    @Test
+    fun mustGenerateNoncesAndIdsAcrossBufferRefills() {
+        verify("Nonces are non-negative numbers and ids are unique") {
+            val nonces = (1..2_000).map { randomProvider.getNonce() }
+            nonces.forEach { assertThat(it.toInt()).isNotNegative() }
+            val ids = (1..2_000).map { randomProvider.getId() }
+            assertThat(ids.toSet()).hasSize(ids.size)
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.RefreshToken
+import com.ampnet.identityservice.persistence.repository.RefreshTokenRepository
+import com.ampnet.identityservice.service.impl.RefreshTokenStore
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.kotlin.any
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import java.time.ZonedDateTime
+
+class RefreshTokenStoreTest : TestBase() {
+
+    private val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val token = "9asdf90asf90asf9asfis90fkas90fkas"
+
+    private lateinit var refreshTokenRepository: RefreshTokenRepository
+    private lateinit var refreshTokenStore: RefreshTokenStore
+
+    @BeforeEach
+    fun init() {
+        refreshTokenRepository = mock()
+        refreshTokenStore = RefreshTokenStore(refreshTokenRepository, ApplicationProperties(), SimpleMeterRegistry())
+    }
+
+    @Test
+    fun mustStoreTokenDigest() {
+        suppose("Repository saves refresh token") {
+            given(refreshTokenRepository.save(any<RefreshToken>())).willAnswer { it.arguments[0] }
+        }
+
+        verify("Only the digest of the token is stored") {
+            val refreshToken = refreshTokenStore.save(address, token, ZonedDateTime.now())
+            assertThat(refreshToken.tokenHash).hasSize(32).isEqualTo(RefreshTokenStore.hash(token))
+        }
+    }
+
+    @Test
+    fun mustServeFoundTokenFromCache() {
+        suppose("Refresh token exists") {
+            given(refreshTokenRepository.findByTokenHash(any())).willReturn(createRefreshToken())
+        }
+
+        verify("Token is loaded from the database once") {
+            assertThat(refreshTokenStore.findByToken(token)?.userAddress).isEqualTo(address)
+            assertThat(refreshTokenStore.findByToken(token)?.userAddress).isEqualTo(address)
+            Mockito.verify(refreshTokenRepository, times(1)).findByTokenHash(any())
+        }
+    }
+
+    @Test
+    fun mustEvictTokenWhenUserTokensAreReplaced() {
+        suppose("Refresh token is cached and then replaced by a new login") {
+            given(refreshTokenRepository.findByTokenHash(any())).willReturn(createRefreshToken(), null)
+            assertThat(refreshTokenStore.findByToken(token)).isNotNull
+            refreshTokenStore.replaceForUser(address, "new-token", ZonedDateTime.now())
+        }
+
+        verify("Replaced token is looked up again and not found") {
+            assertThat(refreshTokenStore.findByToken(token)).isNull()
+            Mockito.verify(refreshTokenRepository, times(2)).findByTokenHash(any())
+            Mockito.verify(refreshTokenRepository).replaceForUser(eq(address), any(), any())
+        }
+    }
+
+    @Test
+    fun mustEvictDeletedToken() {
+        suppose("Refresh token is cached and then deleted") {
+            given(refreshTokenRepository.findByTokenHash(any())).willReturn(createRefreshToken(), null)
+            refreshTokenStore.findByToken(token)?.let { refreshTokenStore.delete(it) }
+        }
+
+        verify("Deleted token is not found") {
+            assertThat(refreshTokenStore.findByToken(token)).isNull()
+            Mockito.verify(refreshTokenRepository, times(2)).findByTokenHash(any())
+        }
+    }
+
+    private fun createRefreshToken() = RefreshToken(1, address, RefreshTokenStore.hash(token), ZonedDateTime.now())
+}
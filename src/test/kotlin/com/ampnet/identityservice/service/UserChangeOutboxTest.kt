@@ -0,0 +1,59 @@
+package com.ampnet.identityservice.service
+
+import com.ampnet.identityservice.ManualFixedScheduler
+import com.ampnet.identityservice.TestBase
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.persistence.model.UserChangeType
+import com.ampnet.identityservice.persistence.repository.UserChangeRepository
+import com.ampnet.identityservice.service.impl.UserChangeOutbox
+import com.ampnet.identityservice.service.pojo.UserChangedEvent
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.kotlin.given
+import org.mockito.kotlin.mock
+import java.time.Duration
+
+class UserChangeOutboxTest : TestBase() {
+
+    private val address = "0x9a72ad187229e9338c7f21e019544947fb25d473"
+    private val retentionMillis = Duration.ofDays(7L).toMillis()
+
+    private lateinit var userChangeRepository: UserChangeRepository
+    private lateinit var scheduler: ManualFixedScheduler
+    private lateinit var userChangeOutbox: UserChangeOutbox
+
+    @BeforeEach
+    fun init() {
+        userChangeRepository = mock()
+        scheduler = ManualFixedScheduler()
+        val schedulerProvider = mock<ScheduledExecutorServiceProvider> {
+            given(it.newSingleThreadScheduledExecutor(UserChangeOutbox.PURGE_NAME)).willReturn(scheduler)
+        }
+        userChangeOutbox = UserChangeOutbox(
+            userChangeRepository, ApplicationProperties(), schedulerProvider
+        )
+    }
+
+    @Test
+    fun mustRecordUserChange() {
+        verify("Change is stored") {
+            userChangeOutbox.onUserChanged(UserChangedEvent(address, UserChangeType.EMAIL_UPDATED))
+            Mockito.verify(userChangeRepository).insert(address, UserChangeType.EMAIL_UPDATED.name)
+        }
+    }
+
+    @Test
+    fun mustPurgeChangesOlderThanRetention() {
+        suppose("Old changes exist") {
+            given(userChangeRepository.deleteOlderThan(retentionMillis)).willReturn(3)
+        }
+
+        verify("Scheduled purge deletes old changes") {
+            scheduler.execute()
+            Mockito.verify(userChangeRepository).deleteOlderThan(retentionMillis)
+            assertThat(userChangeOutbox.purge()).isEqualTo(3)
+        }
+    }
+}
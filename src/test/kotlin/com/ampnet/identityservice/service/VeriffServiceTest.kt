@@ -40,7 +40,7 @@ class VeriffServiceTest : JpaServiceTestBase() {
         val uuidProvider = RandomUuidProvider()
         val whitelistQueueService = mock<WhitelistQueueService>()
         val userService = UserServiceImpl(
-            uuidProvider, zonedDateTimeProvider, userRepository, userInfoRepository, whitelistQueueService
+            uuidProvider, zonedDateTimeProvider, userRepository, userInfoRepository, whitelistQueueService, mock()
         )
         VeriffServiceImpl(
             zonedDateTimeProvider, veriffSessionRepository, veriffDecisionRepository, userInfoRepository,
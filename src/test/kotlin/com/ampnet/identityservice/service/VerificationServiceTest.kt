@@ -2,11 +2,18 @@ package com.ampnet.identityservice.service
 
 import com.ampnet.identityservice.blockchain.BlockchainServiceImpl
 import com.ampnet.identityservice.blockchain.properties.Chain
+import com.ampnet.identityservice.config.ApplicationProperties
+import com.ampnet.identityservice.controller.pojo.request.AuthorizationRequestByMessage
 import com.ampnet.identityservice.exception.ErrorCode
 import com.ampnet.identityservice.exception.InvalidRequestException
+import com.ampnet.identityservice.exception.ResourceNotFoundException
+import com.ampnet.identityservice.service.impl.ContractWalletService
+import com.ampnet.identityservice.service.impl.InMemoryChallengeStore
+import com.ampnet.identityservice.service.impl.SignedChallengeService
 import com.ampnet.identityservice.service.impl.VerificationServiceImpl
 import com.ampnet.identityservice.util.ContractAddress
 import com.ampnet.identityservice.util.WalletAddress
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Disabled
 import org.junit.jupiter.api.Test
@@ -20,11 +27,39 @@ import org.kethereum.crypto.toHex
 import org.kethereum.eip191.signWithEIP191PersonalSign
 import org.kethereum.model.ECKeyPair
 import org.kethereum.model.PrivateKey
+import java.util.concurrent.Executors
 
 class VerificationServiceTest : JpaServiceTestBase() {
 
+    private val authExecutor = Executors.newSingleThreadExecutor()
     private val blockchainService by lazy { BlockchainServiceImpl(applicationProperties, restTemplate) }
-    private val verificationService by lazy { VerificationServiceImpl(blockchainService) }
+    private val challengeStore by lazy { InMemoryChallengeStore(applicationProperties, SimpleMeterRegistry()) }
+    private val signedChallengeService by lazy {
+        SignedChallengeService(applicationProperties, CurrentZonedDateTimeProvider(), SimpleMeterRegistry())
+    }
+    private val contractWalletService by lazy {
+        ContractWalletService(blockchainService, applicationProperties, SimpleMeterRegistry())
+    }
+    private val verificationService by lazy {
+        VerificationServiceImpl(
+            contractWalletService,
+            challengeStore,
+            signedChallengeService,
+            BufferedRandomProvider(),
+            applicationProperties,
+            authExecutor
+        )
+    }
+    private val signedVerificationService by lazy {
+        val properties = ApplicationProperties().apply {
+            challenge.signed = true
+            challenge.secret = "challenge-secret"
+        }
+        val service = SignedChallengeService(properties, CurrentZonedDateTimeProvider(), SimpleMeterRegistry())
+        VerificationServiceImpl(
+            contractWalletService, challengeStore, service, BufferedRandomProvider(), properties, authExecutor
+        )
+    }
     private val chainId = Chain.MATIC_MAIN.id
 
     @Test
@@ -44,6 +79,99 @@ class VerificationServiceTest : JpaServiceTestBase() {
         verificationService.verifyPayload(address, "0x$signedPayload", chainId)
     }
 
+    @Test
+    fun mustNotBeAbleToReuseSignedPayload() {
+        val address = WalletAddress(ADDRESS.toString())
+        val payload = verificationService.generatePayload(address)
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        verificationService.verifyPayload(address, signedPayload, chainId)
+        val error = assertThrows<ResourceNotFoundException> {
+            verificationService.verifyPayload(address, signedPayload, chainId)
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustConsumeChallengeOnFailedVerification() {
+        val address = WalletAddress(ADDRESS.toString())
+        val payload = verificationService.generatePayload(address)
+        val otherKeyPair = createEthereumKeyPair()
+        val invalidPayload = "0x" + otherKeyPair.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        assertThrows<InvalidRequestException> {
+            verificationService.verifyPayload(address, invalidPayload, chainId)
+        }
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        val error = assertThrows<ResourceNotFoundException> {
+            verificationService.verifyPayload(address, signedPayload, chainId)
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustBeAbleToVerifyPayloadByMessage() {
+        val message = verificationService.generatePayloadByMessage()
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(message.toByteArray()).toHex()
+        verificationService.verifyPayloadByMessage(
+            AuthorizationRequestByMessage(ADDRESS.toString(), message, signedPayload)
+        )
+    }
+
+    @Test
+    fun mustFailToVerifyUnknownMessage() {
+        val message = verificationService.generatePayloadByMessage().replace("nonce: ", "nonce: 1")
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(message.toByteArray()).toHex()
+        val error = assertThrows<ResourceNotFoundException> {
+            verificationService.verifyPayloadByMessage(
+                AuthorizationRequestByMessage(ADDRESS.toString(), message, signedPayload)
+            )
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustBeAbleToVerifySignedPayload() {
+        val address = WalletAddress(ADDRESS.toString())
+        val payload = signedVerificationService.generatePayload(address)
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        signedVerificationService.verifyPayload(address, signedPayload, chainId, payload)
+        val error = assertThrows<ResourceNotFoundException> {
+            signedVerificationService.verifyPayload(address, signedPayload, chainId, payload)
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustFailToVerifyTamperedSignedPayload() {
+        val address = WalletAddress(ADDRESS.toString())
+        val payload = signedVerificationService.generatePayload(address).replace("Nonce: ", "Nonce: 1")
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        val error = assertThrows<ResourceNotFoundException> {
+            signedVerificationService.verifyPayload(address, signedPayload, chainId, payload)
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustFailToVerifySignedPayloadIssuedForAnotherAddress() {
+        val keyPair = createEthereumKeyPair()
+        val address = WalletAddress(keyPair.publicKey.toAddress().toString())
+        val payload = signedVerificationService.generatePayload(WalletAddress(ADDRESS.toString()))
+        val signedPayload = "0x" + keyPair.signWithEIP191PersonalSign(payload.toByteArray()).toHex()
+        val error = assertThrows<ResourceNotFoundException> {
+            signedVerificationService.verifyPayload(address, signedPayload, chainId, payload)
+        }
+        assertThat(error.errorCode).isEqualTo(ErrorCode.AUTH_PAYLOAD_MISSING)
+    }
+
+    @Test
+    fun mustBeAbleToVerifySignedPayloadByMessage() {
+        val message = signedVerificationService.generatePayloadByMessage()
+        val signedPayload = "0x" + KEY_PAIR.signWithEIP191PersonalSign(message.toByteArray()).toHex()
+        signedVerificationService.verifyPayloadByMessage(
+            AuthorizationRequestByMessage(ADDRESS.toString(), message, signedPayload)
+        )
+    }
+
     @Test
     fun mustValidateCustomSignature() {
         val customSignature =
@@ -0,0 +1,29 @@
+package com.ampnet.identityservice.util
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+class BloomFilterTest {
+
+    @Test
+    fun mustContainAddedValues() {
+        val filter = BloomFilter(1_000)
+        val values = (0 until 1_000).map { "token-$it" }
+        values.forEach { filter.add(it) }
+        assertThat(values).allMatch { filter.mightContain(it) }
+    }
+
+    @Test
+    fun mustKeepFalsePositiveRateLow() {
+        val filter = BloomFilter(10_000, 0.01)
+        (0 until 10_000).forEach { filter.add("token-$it") }
+        val falsePositives = (10_000 until 20_000).count { filter.mightContain("token-$it") }
+        assertThat(falsePositives).isLessThan(300)
+    }
+
+    @Test
+    fun mustNotContainValuesOfEmptyFilter() {
+        val filter = BloomFilter(100)
+        assertThat(filter.mightContain("token")).isFalse
+    }
+}
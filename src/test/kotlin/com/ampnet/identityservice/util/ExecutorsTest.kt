@@ -0,0 +1,34 @@
+package com.ampnet.identityservice.util
+
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.InvalidRequestException
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.util.concurrent.Executors
+
+class ExecutorsTest {
+
+    private val executor = Executors.newSingleThreadExecutor()
+
+    @AfterEach
+    fun shutdown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun mustReturnResultOfTaskRunOnExecutor() {
+        val caller = Thread.currentThread()
+        assertThat(executor.runAndWait { Thread.currentThread() }).isNotSameAs(caller)
+        assertThat(executor.runAndWait { "result" }).isEqualTo("result")
+    }
+
+    @Test
+    fun mustRethrowExceptionOfTask() {
+        val exception = assertThrows<InvalidRequestException> {
+            executor.runAndWait { throw InvalidRequestException(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID, "Invalid") }
+        }
+        assertThat(exception.errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+    }
+}
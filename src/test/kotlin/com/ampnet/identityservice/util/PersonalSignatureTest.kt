@@ -0,0 +1,65 @@
+package com.ampnet.identityservice.util
+
+import com.ampnet.identityservice.exception.ErrorCode
+import com.ampnet.identityservice.exception.InvalidRequestException
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.web3j.crypto.Hash
+
+class PersonalSignatureTest {
+
+    private val address = WalletAddress("0x9a72ad187229e9338c7f21e019544947fb25d473")
+    private val message = "Welcome!\nPlease sign this message to verify that you are the owner of address: " +
+        "0x9a72ad187229e9338c7f21e019544947fb25d473\nNonce: 1202780025"
+    private val signature = "0xbc450b7d46c065c824af75c93b7baac89c8282ee1496474fd8707692ba1df8250de4dc5dc4cb770c39a0" +
+        "4a6e9f9ebe55b7111f359ad24f79e1aa7a3f50620b841b"
+
+    @Test
+    fun mustHashPrefixedMessage() {
+        val payload = message.toByteArray()
+        val expected = Hash.sha3(
+            byteArrayOf(0x19) + "Ethereum Signed Message:\n${payload.size}".toByteArray() + payload
+        )
+        assertThat(PersonalSignature.hash(payload)).isEqualTo(expected)
+    }
+
+    @Test
+    fun mustVerifySignature() {
+        PersonalSignature.verify(address, message, signature)
+        PersonalSignature.verify(address, message, signature.uppercase().replaceFirst("0X", "0x"))
+    }
+
+    @Test
+    fun mustFailForDifferentAddress() {
+        val exception = assertThrows<InvalidRequestException> {
+            PersonalSignature.verify(WalletAddress("0x8f52b0cc50967fc59c6289f8fdb3e356edeebd23"), message, signature)
+        }
+        assertThat(exception.errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+        assertThat(exception.message).contains(address.value)
+    }
+
+    @Test
+    fun mustFailForMalformedSignature() {
+        val invalidHex = assertThrows<InvalidRequestException> {
+            PersonalSignature.verify(address, message, signature.replaceRange(10, 11, "z"))
+        }
+        assertThat(invalidHex.errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+        val wrongLength = assertThrows<InvalidRequestException> {
+            PersonalSignature.verify(address, message, signature.dropLast(2))
+        }
+        assertThat(wrongLength.errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+    }
+
+    @Test
+    fun mustAcceptOnlyValidRecoveryIds() {
+        PersonalSignature.verify(address, message, signature.dropLast(2) + "00")
+        listOf("02", "03", "1d", "ff").forEach { v ->
+            val exception = assertThrows<InvalidRequestException> {
+                PersonalSignature.verify(address, message, signature.dropLast(2) + v)
+            }
+            assertThat(exception.errorCode).isEqualTo(ErrorCode.AUTH_SIGNED_PAYLOAD_INVALID)
+            assertThat(exception.message).contains("recovery id")
+        }
+    }
+}